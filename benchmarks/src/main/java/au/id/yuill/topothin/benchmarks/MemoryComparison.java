@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin.benchmarks;
+
+import au.id.yuill.topothin.InMemoryTable;
+import au.id.yuill.topothin.Row;
+import au.id.yuill.topothin.Table;
+import au.id.yuill.topothin.TopoCoord;
+import au.id.yuill.topothin.TopoCoordData;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures the heap retained by the vertex model of a loaded, noded topology: the TopoStore
+ * of the current library against the per vertex TopoCoord table it replaced, for the same
+ * Tessellation. The source geometry is built first and held throughout, so only the model
+ * itself is measured.
+ * <br><br>The TopoCoord table is laid out exactly as the original TopoCoordData left it: a
+ * 65536 slot array of buckets chosen by TopoCoord.bucketIndex(), each bucket an array sized
+ * to its TopoCoords, and each TopoCoord holding an array sized to the LineStrings containing
+ * it. It is built through a hash map that is dropped before measuring, as the original
+ * insertion is quadratic in the bucket size.
+ * <br><br>Retained heap is the used heap after repeated full collections with the model
+ * reachable, less the used heap before it was built; the smallest of several runs is
+ * reported. Run with a serial collector for steady figures, for example
+ * <br>java -XX:+UseSerialGC -Xmx8g -cp target/benchmarks.jar au.id.yuill.topothin.benchmarks.MemoryComparison 100000 1000000
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class MemoryComparison {
+
+    private static final int RUNS = 3;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static Object retained; // keeps the model reachable while it is measured
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            args = new String[] {"100000", "1000000"};
+        }
+        System.out.println("vertices  distinct  TopoCoord table  TopoStore  ratio");
+        for (String arg: args) {
+            final Tessellation tessellation = Tessellation.ofVertices(Integer.parseInt(arg), 24, 1L);
+            final List<LineString> rings = rings(tessellation);
+            final int[] distinct = new int[1];
+            long table = measure(() -> topoCoordTable(rings));
+            long store = measure(() -> {
+                TopoCoordData tcd = new TopoCoordData();
+                for (Table t: tessellation.tables()) {
+                    t.populateTopoCoordData(null, null, tcd);
+                }
+                tcd.findNodes();
+                distinct[0] = tcd.pointCount();
+                return tcd.store;
+            });
+            System.out.println(String.format("%8d  %8d  %15d  %9d  %5.2f", tessellation.vertexCount(),
+                    distinct[0], table, store, (double)table / store));
+        }
+    }
+
+    private static List<LineString> rings(Tessellation tessellation) {
+        List<LineString> rings = new ArrayList<>();
+        for (Table table: tessellation.tables()) {
+            for (Row row: ((InMemoryTable)table).getSourceRows()) {
+                MultiPolygon mp = row.mp;
+                for (int i = 0; i < mp.getNumGeometries(); i++) {
+                    Polygon poly = (Polygon)mp.getGeometryN(i);
+                    rings.add(poly.getExteriorRing());
+                    for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                        rings.add(poly.getInteriorRingN(j));
+                    }
+                }
+            }
+        }
+        return rings;
+    }
+
+    /**
+     * @return The buckets of TopoCoords of the original model, with node status set as
+     * findNodes() left it
+     */
+    private static TopoCoord[][] topoCoordTable(List<LineString> rings) {
+        Map<Coordinate, TopoCoord> lookup = new HashMap<>();
+        List<List<TopoCoord>> buckets = new ArrayList<>();
+        for (int b = 0; b < 65536; b++) {
+            buckets.add(null);
+        }
+        for (LineString ring: rings) {
+            CoordinateSequence seq = ring.getCoordinateSequence();
+            for (int k = 0; k < seq.size(); k++) {
+                Coordinate coord = new Coordinate(seq.getX(k), seq.getY(k));
+                TopoCoord tc = lookup.get(coord);
+                if (tc == null) {
+                    tc = new TopoCoord();
+                    tc.lat = coord.y;
+                    tc.lon = coord.x;
+                    tc.lineString = new LineString[] {ring};
+                    lookup.put(coord, tc);
+                    int bucket = tc.bucketIndex();
+                    if (buckets.get(bucket) == null) {
+                        buckets.set(bucket, new ArrayList<>());
+                    }
+                    buckets.get(bucket).add(tc);
+                } else if (!contains(tc.lineString, ring)) {
+                    LineString[] lineStrings = new LineString[tc.lineString.length + 1];
+                    System.arraycopy(tc.lineString, 0, lineStrings, 0, tc.lineString.length);
+                    lineStrings[tc.lineString.length] = ring;
+                    tc.lineString = lineStrings;
+                }
+            }
+        }
+        for (LineString ring: rings) {
+            CoordinateSequence seq = ring.getCoordinateSequence();
+            TopoCoord last = null;
+            for (int k = 0; k < seq.size(); k++) {
+                TopoCoord tc = lookup.get(new Coordinate(seq.getX(k), seq.getY(k)));
+                if (last != null) {
+                    last.testNode(tc);
+                }
+                last = tc;
+            }
+        }
+        TopoCoord[][] points = new TopoCoord[65536][];
+        for (int b = 0; b < points.length; b++) {
+            List<TopoCoord> bucket = buckets.get(b);
+            if (bucket != null) {
+                points[b] = bucket.toArray(new TopoCoord[bucket.size()]);
+            }
+        }
+        return points;
+    }
+
+    private static boolean contains(LineString[] lineStrings, LineString ring) {
+        for (LineString ls: lineStrings) {
+            if (ls == ring) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The smallest heap retained by the model over several runs, in bytes
+     */
+    private static long measure(Callable<Object> model) throws Exception {
+        long smallest = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            retained = null;
+            long before = usedAfterGc();
+            retained = model.call();
+            long after = usedAfterGc();
+            smallest = Math.min(smallest, after - before);
+        }
+        retained = null;
+        return smallest;
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, MEMORY.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin.benchmarks;
+
+import au.id.yuill.topothin.DefaultSimplifier;
+import au.id.yuill.topothin.Table;
+import au.id.yuill.topothin.TopoCoordData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of each phase of the thinning pipeline and of the whole pipeline, over
+ * Tessellation datasets from about 10 thousand to 10 million vertices.
+ * <br><br>Each phase benchmark starts from a fresh TopoCoordData taken through the earlier
+ * phases in an untimed setup. Run with the GC profiler to report allocation rates, for example
+ * <br>java -jar target/benchmarks.jar -prof gc -p vertices=100000
+ *
+ * @version 1.0
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class PipelineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int vertices;
+
+        @Param({"24"})
+        public int segments;
+
+        public Tessellation tessellation;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            tessellation = Tessellation.ofVertices(vertices, segments, 1L);
+        }
+
+        public TopoCoordData load() throws Exception {
+            TopoCoordData tcd = new TopoCoordData(new DefaultSimplifier(), 4283);
+            for (Table table: tessellation.tables()) {
+                table.populateTopoCoordData(null, null, tcd);
+            }
+            return tcd;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Loaded {
+        public TopoCoordData tcd;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) throws Exception {
+            tcd = input.load();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Noded {
+        public TopoCoordData tcd;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) throws Exception {
+            tcd = input.load();
+            tcd.findNodes();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Edged {
+        public TopoCoordData tcd;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) throws Exception {
+            tcd = input.load();
+            tcd.findNodes();
+            tcd.createEdges();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Simplified {
+        public TopoCoordData tcd;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) throws Exception {
+            tcd = input.load();
+            tcd.findNodes();
+            tcd.createEdges();
+            tcd.simplifyEdges();
+        }
+    }
+
+    /**
+     * Adding rows, which adds every coordinate to the store.
+     */
+    @Benchmark
+    public TopoCoordData load(Input input) throws Exception {
+        return input.load();
+    }
+
+    @Benchmark
+    public TopoCoordData findNodes(Loaded loaded) {
+        loaded.tcd.findNodes();
+        return loaded.tcd;
+    }
+
+    @Benchmark
+    public TopoCoordData createEdges(Noded noded) throws Exception {
+        noded.tcd.createEdges();
+        return noded.tcd;
+    }
+
+    @Benchmark
+    public TopoCoordData simplifyEdges(Edged edged) {
+        edged.tcd.simplifyEdges();
+        return edged.tcd;
+    }
+
+    @Benchmark
+    public TopoCoordData createThinnedPolygons(Simplified simplified) throws Exception {
+        simplified.tcd.createThinnedPolygons();
+        return simplified.tcd;
+    }
+
+    /**
+     * Load, thin and save every table.
+     */
+    @Benchmark
+    public TopoCoordData pipeline(Input input) throws Exception {
+        TopoCoordData tcd = input.load();
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        for (Table table: input.tessellation.tables()) {
+            table.saveThinnedGeometry(null, null, tcd);
+        }
+        return tcd;
+    }
+}
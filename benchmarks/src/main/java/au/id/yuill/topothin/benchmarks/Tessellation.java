@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin.benchmarks;
+
+import au.id.yuill.topothin.InMemoryTable;
+import au.id.yuill.topothin.Table;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A deterministic synthetic dataset resembling nested statistical boundaries.
+ * <br><br>The fine table is a grid of cells whose shared boundaries meander and carry small
+ * vertex jitter, so neighbouring cells share identical vertices in opposite order. The
+ * coarse table covers the same grid in blocks of cells built from the same boundaries, so
+ * its edges coincide with fine edges. Some fine cells have a hole filled by a row of the
+ * island table, some coarse rows have an offshore island as a second polygon and the island
+ * table has a row made only of islands.
+ * <br>The same arguments always produce the same coordinates.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class Tessellation {
+
+    private static final double CELL = 0.01;
+    private static final double ORIGIN_X = 140.0;
+    private static final double ORIGIN_Y = -30.0;
+
+    public final InMemoryTable fine = new InMemoryTable("fine");
+    public final InMemoryTable coarse = new InMemoryTable("coarse");
+    public final InMemoryTable islands = new InMemoryTable("islands");
+
+    private final GeometryFactory factory;
+    private final int segments;
+    private final long seed;
+
+    /**
+     * @param columns Number of fine cells across
+     * @param rows Number of fine cells down
+     * @param segments Number of segments in each side of a fine cell
+     * @param blockSize Number of fine cells across and down a coarse row
+     * @param seed Varies the meander and jitter of boundaries
+     */
+    public Tessellation(int columns, int rows, int segments, int blockSize, long seed) {
+        this.factory = new GeometryFactory(new PrecisionModel(), 4283);
+        this.segments = segments;
+        this.seed = seed;
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                String code = i + "_" + j;
+                LinearRing shell = factory.createLinearRing(block(i, j, i + 1, j + 1));
+                if (mix(seed, i, j, 1) % 11 == 0) {
+                    Coordinate[] circle = circle((i + 0.5) * CELL, (j + 0.5) * CELL, CELL * 0.2, 4 * segments, i, j);
+                    islands.add("i" + code, "island " + code, factory.createMultiPolygon(new Polygon[] {
+                            factory.createPolygon(circle)}));
+                    Coordinate[] hole = circle.clone();
+                    reverse(hole);
+                    fine.add("f" + code, "fine " + code, factory.createMultiPolygon(new Polygon[] {
+                            factory.createPolygon(shell, new LinearRing[] {factory.createLinearRing(hole)})}));
+                } else {
+                    fine.add("f" + code, "fine " + code, factory.createMultiPolygon(new Polygon[] {
+                            factory.createPolygon(shell)}));
+                }
+            }
+        }
+        for (int i = 0; i < columns; i += blockSize) {
+            for (int j = 0; j < rows; j += blockSize) {
+                String code = i + "_" + j;
+                List<Polygon> polygons = new ArrayList<>();
+                polygons.add(factory.createPolygon(block(i, j, Math.min(columns, i + blockSize), Math.min(rows, j + blockSize))));
+                if (mix(seed, i, j, 2) % 5 == 0) {
+                    // offshore, west of the grid
+                    polygons.add(factory.createPolygon(circle(-5 * CELL - i * CELL, j * CELL, CELL * 0.3,
+                            3 * segments, -1 - i, j)));
+                }
+                coarse.add("c" + code, "coarse " + code, factory.createMultiPolygon(polygons.toArray(new Polygon[0])));
+            }
+        }
+        islands.add("sea", "sea", factory.createMultiPolygon(new Polygon[] {
+                factory.createPolygon(circle(-CELL * 3, -CELL * 3, CELL * 2, 10 * segments, -1, -1)),
+                factory.createPolygon(circle(-CELL * 8, -CELL * 3, CELL, 6 * segments, -2, -1))}));
+    }
+
+    /**
+     * A square grid with about the given number of vertices, counted as they are loaded by
+     * TopoCoordData.addRow(), across all tables.
+     */
+    public static Tessellation ofVertices(int vertices, int segments, long seed) {
+        // a fine ring has 4 sides, a coarse ring of 4 cells has 8, and 1 cell in 11 has a hole and an island
+        int cells = Math.max(1, (int)(vertices / (segments * (4 + 2 + 8 / 11.0))));
+        int side = Math.max(1, (int)Math.round(Math.sqrt(cells)));
+        return new Tessellation(side, side, segments, 2, seed);
+    }
+
+    public GeometryFactory getFactory() {
+        return factory;
+    }
+
+    public List<Table> tables() {
+        return Arrays.asList(fine, coarse, islands);
+    }
+
+    public int vertexCount() {
+        return fine.vertexCount() + coarse.vertexCount() + islands.vertexCount();
+    }
+
+    /**
+     * @return The closed ring around the cells from (x0, y0) to (x1, y1), counter clockwise
+     */
+    private Coordinate[] block(int x0, int y0, int x1, int y1) {
+        List<Coordinate> ring = new ArrayList<>();
+        for (int i = x0; i < x1; i++) {
+            for (int s = 0; s < segments; s++) {
+                ring.add(horizontal(i, y0, s));
+            }
+        }
+        for (int j = y0; j < y1; j++) {
+            for (int s = 0; s < segments; s++) {
+                ring.add(vertical(x1, j, s));
+            }
+        }
+        for (int i = x1 - 1; i >= x0; i--) {
+            for (int s = segments; s > 0; s--) {
+                ring.add(horizontal(i, y1, s));
+            }
+        }
+        for (int j = y1 - 1; j >= y0; j--) {
+            for (int s = segments; s > 0; s--) {
+                ring.add(vertical(x0, j, s));
+            }
+        }
+        ring.add(new Coordinate(ring.get(0)));
+        return ring.toArray(new Coordinate[0]);
+    }
+
+    /**
+     * @return Vertex s of the boundary along grid line y = j from x = i to x = i + 1
+     */
+    private Coordinate horizontal(int i, int j, int s) {
+        double t = s / (double)segments;
+        return new Coordinate(ORIGIN_X + (i + t) * CELL, ORIGIN_Y + j * CELL + offset(i, j, 3, s, t));
+    }
+
+    /**
+     * @return Vertex s of the boundary along grid line x = i from y = j to y = j + 1
+     */
+    private Coordinate vertical(int i, int j, int s) {
+        double t = s / (double)segments;
+        return new Coordinate(ORIGIN_X + i * CELL + offset(i, j, 4, s, t), ORIGIN_Y + (j + t) * CELL);
+    }
+
+    /**
+     * A meander of up to 0.15 of a cell plus jitter, both zero at the grid nodes.
+     */
+    private double offset(int i, int j, int direction, int s, double t) {
+        if (s == 0 || s == segments) {
+            return 0.0;
+        }
+        double meander = (unit(mix(seed, i, j, direction)) - 0.5) * 0.3 * CELL * Math.sin(Math.PI * t);
+        double jitter = (unit(mix(seed, i * 31 + direction, j, s)) - 0.5) * 0.4 * CELL / segments;
+        return meander + jitter;
+    }
+
+    private Coordinate[] circle(double cx, double cy, double radius, int n, int i, int j) {
+        Coordinate[] ring = new Coordinate[n + 1];
+        for (int k = 0; k < n; k++) {
+            double angle = 2 * Math.PI * k / n;
+            double r = radius * (1 + (unit(mix(seed, i, j, 100 + k)) - 0.5) * 0.2);
+            ring[k] = new Coordinate(ORIGIN_X + cx + r * Math.cos(angle), ORIGIN_Y + cy + r * Math.sin(angle));
+        }
+        ring[n] = new Coordinate(ring[0]);
+        return ring;
+    }
+
+    private static void reverse(Coordinate[] coords) {
+        for (int i = 0, j = coords.length - 1; i < j; i++, j--) {
+            Coordinate c = coords[i];
+            coords[i] = coords[j];
+            coords[j] = c;
+        }
+    }
+
+    private static long mix(long seed, int a, int b, int c) {
+        long h = seed ^ (a * 0x9E3779B97F4A7C15L) ^ (b * 0xC2B2AE3D27D4EB4FL) ^ (c * 0x165667B19E3779F9L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h & Long.MAX_VALUE;
+    }
+
+    private static double unit(long h) {
+        return (h >>> 11) / (double)(1L << 52);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin.jfr;
+
+import au.id.yuill.topothin.PhaseStats;
+import au.id.yuill.topothin.Row;
+import au.id.yuill.topothin.Table;
+import au.id.yuill.topothin.TopoListener;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Records the phases of a TopoCoordData build and row reassembly failures as Java Flight
+ * Recorder events, which cost next to nothing when no recording is running. Histograms and
+ * table measurements are recorded as text, as JFR events have no array fields.
+ * <br>Requires a JVM with the jdk.jfr API, that is Java 11 or later or Java 8 update 262 or
+ * later, so it is built as a separate module and the core library stays on Java 8.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class JfrListener implements TopoListener {
+
+    private final Map<Phase, PhaseEvent> started = new EnumMap<>(Phase.class);
+
+    @Override
+    public synchronized void phaseStarted(Phase phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        started.put(phase, event);
+    }
+
+    @Override
+    public synchronized void phaseCompleted(PhaseStats stats) {
+        PhaseEvent event = started.remove(stats.phase);
+        if (event == null) {
+            event = new PhaseEvent();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = stats.phase.name();
+            event.rows = stats.rows;
+            event.points = stats.points;
+            event.vertices = stats.vertices;
+            event.nodes = stats.nodes;
+            event.edges = stats.edges;
+            event.failures = stats.failures;
+            event.probeLengths = stats.probeLengths == null ? null : Arrays.toString(stats.probeLengths);
+            event.edgeSizes = stats.edgeSizes == null ? null : Arrays.toString(stats.edgeSizes);
+            event.reductions = stats.reductions == null ? null : Arrays.toString(stats.reductions);
+            StringBuilder tables = new StringBuilder();
+            for (Map.Entry<Table, PhaseStats.TableStats> entry: stats.tables.entrySet()) {
+                PhaseStats.TableStats ts = entry.getValue();
+                tables.append(tables.length() == 0 ? "" : "; ").append(entry.getKey())
+                        .append(" rows=").append(ts.rows).append(" vertices=").append(ts.vertices)
+                        .append(" ms=").append(ts.nanos / 1000000).append(" failures=").append(ts.failures);
+            }
+            event.tables = tables.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void rowFailed(Row row, Exception e) {
+        RowFailureEvent event = new RowFailureEvent();
+        if (event.isEnabled()) {
+            event.table = String.valueOf(row.table);
+            event.code = row.code;
+            event.message = String.valueOf(e.getMessage());
+            event.commit();
+        }
+    }
+
+    @Name("au.id.yuill.topothin.Phase")
+    @Label("Topothin Phase")
+    @Category("Topothin")
+    @Description("A phase of a topology build, see PhaseStats")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Rows")
+        int rows;
+        @Label("Points")
+        long points;
+        @Label("Vertices")
+        int vertices;
+        @Label("Nodes")
+        int nodes;
+        @Label("Edges")
+        int edges;
+        @Label("Failures")
+        int failures;
+        @Label("Probe Lengths")
+        String probeLengths;
+        @Label("Edge Sizes")
+        String edgeSizes;
+        @Label("Reductions")
+        String reductions;
+        @Label("Tables")
+        String tables;
+    }
+
+    @Name("au.id.yuill.topothin.RowFailure")
+    @Label("Topothin Row Failure")
+    @Category("Topothin")
+    @Description("A row that could not be reassembled from its thinned edges")
+    static class RowFailureEvent extends Event {
+        @Label("Table")
+        String table;
+        @Label("Code")
+        String code;
+        @Label("Message")
+        String message;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.algorithm.Distance;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Douglas-Peucker simplification of coordinate arrays with the length scaled tolerance of
+ * DefaultSimplifier. Sections are processed from an explicit stack held, with the other
+ * working arrays, in buffers reused by each thread.
+ * <br>As in the JTS TopologyPreservingSimplifier a section is only flattened once the line
+ * is sure to keep its minimum size, 4 vertices for a closed line and 2 otherwise. Unlike it,
+ * no test is made that the simplified line does not cross itself.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ArrayDouglasPeuckerSimplifier implements ArraySimplifier {
+
+    private static final ThreadLocal<int[]> STACK = ThreadLocal.withInitial(() -> new int[192]);
+    private static final ThreadLocal<boolean[]> KEEP = ThreadLocal.withInitial(() -> new boolean[64]);
+
+    private double lengthFactor = 0.02;
+    private double maxDistanceTolerance = 0.01;
+
+    public ArrayDouglasPeuckerSimplifier() {
+    }
+
+    public ArrayDouglasPeuckerSimplifier(double lengthFactor, double maxDistanceTolerance) {
+        this.lengthFactor = lengthFactor;
+        this.maxDistanceTolerance = maxDistanceTolerance;
+    }
+
+    @Override
+    public String getIdentity() {
+        return getClass().getName() + "(" + lengthFactor + "," + maxDistanceTolerance + ")";
+    }
+
+    @Override
+    public int simplify(Coordinate[] coords, int[] kept) {
+        int n = coords.length;
+        if (n < 3) {
+            for (int i = 0; i < n; i++) {
+                kept[i] = i;
+            }
+            return n;
+        }
+        double tolerance = ArraySimplifier.lengthScaledTolerance(coords, lengthFactor, maxDistanceTolerance);
+        int minimumSize = coords[0].equals2D(coords[n - 1]) ? 4 : 2;
+        boolean[] keep = KEEP.get();
+        if (keep.length < n) {
+            keep = new boolean[n * 2];
+            KEEP.set(keep);
+        }
+        int[] stack = STACK.get();
+        // each stack entry is the start, end and depth of a section
+        int top = 0;
+        int resultSize = 0; // vertices kept by the sections completed so far, left to right
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        stack[top++] = 0;
+        while (top > 0) {
+            int depth = stack[--top];
+            int end = stack[--top];
+            int start = stack[--top];
+            if (end - start < 2) {
+                resultSize = resultSize == 0 ? 2 : resultSize + 1;
+                continue;
+            }
+            int max = start + 1;
+            double maxDistance = -1.0;
+            for (int i = start + 1; i < end; i++) {
+                double distance = Distance.pointToSegment(coords[i], coords[start], coords[end]);
+                if (distance > maxDistance) {
+                    max = i;
+                    maxDistance = distance;
+                }
+            }
+            // flattening is safe once enough vertices are kept or the section is deep enough
+            // that the rest of the line must keep them
+            boolean safe = resultSize >= minimumSize || depth + 2 >= minimumSize;
+            if (maxDistance <= tolerance && safe) {
+                resultSize = resultSize == 0 ? 2 : resultSize + 1;
+                continue;
+            }
+            keep[max] = true;
+            if (top + 6 > stack.length) {
+                int[] larger = new int[stack.length * 2];
+                System.arraycopy(stack, 0, larger, 0, top);
+                stack = larger;
+                STACK.set(stack);
+            }
+            stack[top++] = max;
+            stack[top++] = end;
+            stack[top++] = depth + 1;
+            stack[top++] = start;
+            stack[top++] = max;
+            stack[top++] = depth + 1;
+        }
+        int count = 0;
+        kept[count++] = 0;
+        for (int i = 1; i < n - 1; i++) {
+            if (keep[i]) {
+                kept[count++] = i;
+                keep[i] = false;
+            }
+        }
+        kept[count++] = n - 1;
+        return count;
+    }
+}
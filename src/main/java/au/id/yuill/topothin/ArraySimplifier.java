@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * A Simplifier that works on coordinate arrays and selects the vertices to keep, so that
+ * no geometry is built to simplify an edge. TopoCoordData.simplifyEdges() uses the array
+ * form directly with a reused index buffer.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public interface ArraySimplifier extends Simplifier {
+
+    /**
+     * Select the vertices to keep. The first and last vertices are always kept, and a
+     * closed line keeps at least 4 vertices.
+     *
+     * @param coords The coordinates of the line
+     * @param kept Receives the indexes of the kept vertices in ascending order, its length
+     *             must be at least that of coords
+     * @return The number of kept vertices
+     */
+    public int simplify(Coordinate[] coords, int[] kept);
+
+    @Override
+    public default LineString simplify(LineString source) {
+        Coordinate[] coords = source.getCoordinates();
+        int[] kept = new int[coords.length];
+        int count = simplify(coords, kept);
+        Coordinate[] simple = new Coordinate[count];
+        for (int i = 0; i < count; i++) {
+            simple[i] = coords[kept[i]];
+        }
+        return source.getFactory().createLineString(simple);
+    }
+
+    /**
+     * The tolerance of DefaultSimplifier: the line length times the length factor, limited
+     * to the maximum distance tolerance.
+     */
+    public static double lengthScaledTolerance(Coordinate[] coords, double lengthFactor, double maxDistanceTolerance) {
+        double length = 0.0;
+        for (int i = 1; i < coords.length; i++) {
+            length += coords[i - 1].distance(coords[i]);
+        }
+        return Math.min(length * lengthFactor, maxDistanceTolerance);
+    }
+}
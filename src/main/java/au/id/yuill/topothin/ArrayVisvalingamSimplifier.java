@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Visvalingam-Whyatt simplification of coordinate arrays with the length scaled tolerance of
+ * DefaultSimplifier. As in the JTS VWSimplifier the vertex forming the smallest triangle with
+ * its neighbours is removed while that area is less than the square of the distance tolerance,
+ * the first vertex being removed when areas are equal. The triangles are kept in a binary
+ * heap, with the heap and the linked list of remaining vertices held in buffers reused by
+ * each thread.
+ * <br>A closed line keeps at least 4 vertices. No test is made that the simplified line does
+ * not cross itself.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ArrayVisvalingamSimplifier implements ArraySimplifier {
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private double lengthFactor = 0.02;
+    private double maxDistanceTolerance = 0.01;
+
+    public ArrayVisvalingamSimplifier() {
+    }
+
+    public ArrayVisvalingamSimplifier(double lengthFactor, double maxDistanceTolerance) {
+        this.lengthFactor = lengthFactor;
+        this.maxDistanceTolerance = maxDistanceTolerance;
+    }
+
+    @Override
+    public String getIdentity() {
+        return getClass().getName() + "(" + lengthFactor + "," + maxDistanceTolerance + ")";
+    }
+
+    @Override
+    public int simplify(Coordinate[] coords, int[] kept) {
+        int n = coords.length;
+        if (n < 3) {
+            for (int i = 0; i < n; i++) {
+                kept[i] = i;
+            }
+            return n;
+        }
+        double tolerance = ArraySimplifier.lengthScaledTolerance(coords, lengthFactor, maxDistanceTolerance);
+        double areaTolerance = tolerance * tolerance;
+        int minimumSize = coords[0].equals2D(coords[n - 1]) ? 4 : 2;
+        Buffers b = BUFFERS.get();
+        b.ensure(n);
+        int[] prev = b.prev;
+        int[] next = b.next;
+        double[] area = b.area;
+        // heap of interior vertices, ordered by area then index
+        int[] heap = b.heap;
+        int[] position = b.position;
+        int size = 0;
+        next[0] = 1;
+        for (int i = 1; i < n - 1; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+            area[i] = area(coords[i - 1], coords[i], coords[i + 1]);
+            heap[size] = i;
+            position[i] = size++;
+        }
+        for (int k = size / 2 - 1; k >= 0; k--) {
+            siftDown(heap, position, area, size, k);
+        }
+        int remaining = n;
+        while (size > 0 && remaining > minimumSize && area[heap[0]] < areaTolerance) {
+            int vertex = heap[0];
+            position[vertex] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(heap, position, area, size, 0);
+            }
+            remaining--;
+            int p = prev[vertex];
+            int q = next[vertex];
+            next[p] = q;
+            prev[q] = p;
+            if (p > 0) {
+                update(heap, position, area, size, p, area(coords[prev[p]], coords[p], coords[q]));
+            }
+            if (q < n - 1) {
+                update(heap, position, area, size, q, area(coords[p], coords[q], coords[next[q]]));
+            }
+        }
+        int count = 0;
+        for (int i = 0; i != n - 1; i = next[i]) {
+            kept[count++] = i;
+        }
+        kept[count++] = n - 1;
+        return count;
+    }
+
+    private static double area(Coordinate a, Coordinate b, Coordinate c) {
+        return Math.abs((b.x - a.x) * (c.y - a.y) - (c.x - a.x) * (b.y - a.y)) / 2.0;
+    }
+
+    private static boolean less(double[] area, int v, int w) {
+        return area[v] < area[w] || (area[v] == area[w] && v < w);
+    }
+
+    private static void update(int[] heap, int[] position, double[] area, int size, int vertex, double value) {
+        double old = area[vertex];
+        area[vertex] = value;
+        if (value < old) {
+            siftUp(heap, position, area, position[vertex]);
+        } else {
+            siftDown(heap, position, area, size, position[vertex]);
+        }
+    }
+
+    private static void siftUp(int[] heap, int[] position, double[] area, int k) {
+        int vertex = heap[k];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!less(area, vertex, heap[parent])) {
+                break;
+            }
+            heap[k] = heap[parent];
+            position[heap[k]] = k;
+            k = parent;
+        }
+        heap[k] = vertex;
+        position[vertex] = k;
+    }
+
+    private static void siftDown(int[] heap, int[] position, double[] area, int size, int k) {
+        int vertex = heap[k];
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(area, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(area, heap[child], vertex)) {
+                break;
+            }
+            heap[k] = heap[child];
+            position[heap[k]] = k;
+            k = child;
+        }
+        heap[k] = vertex;
+        position[vertex] = k;
+    }
+
+    private static class Buffers {
+        int[] prev = new int[0];
+        int[] next = new int[0];
+        int[] heap = new int[0];
+        int[] position = new int[0];
+        double[] area = new double[0];
+
+        void ensure(int n) {
+            if (prev.length < n) {
+                int capacity = Math.max(64, n * 2);
+                prev = new int[capacity];
+                next = new int[capacity];
+                heap = new int[capacity];
+                position = new int[capacity];
+                area = new double[capacity];
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.util.Collection;
+
+/**
+ * Simplification of all edges at once, allowing each edge to be simplified with regard to
+ * the others. A Simplifier that also implements this interface is used by
+ * TopoCoordData.simplifyEdges() for the whole edge set, and its Simplifier method for single
+ * edges.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public interface BatchSimplifier {
+
+    /**
+     * Simplify every edge, setting the coordinate array of each.
+     */
+    public void simplify(Collection<Edge> edges);
+
+    /**
+     * Simplify edges added to a topology whose other edges are already simplified, as
+     * TopoCoordData.updateRows() does for the edges it creates. By default the fixed edges are
+     * ignored.
+     *
+     * @param fixed The simplified edges the new edges must fit among, which are not changed
+     */
+    public default void simplify(Collection<Edge> edges, Collection<Edge> fixed) {
+        simplify(edges);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An open addressing hash index of distinct coordinates. Each coordinate is assigned a dense
+ * integer id in insertion order and its latitude and longitude are held in primitive arrays
+ * indexed by that id. The hash is taken over the full 64 bit patterns of both ordinates, so
+ * insert and lookup are O(1) expected regardless of the spatial distribution of the data.
+ * <br>An index for a fixed PrecisionModel holds each ordinate as an int count of grid steps
+ * instead, so coordinates are compared and hashed as integers and take half the space.
+ * Coordinates must then be precise in the model, as PrecisionModel.makePrecise() leaves
+ * them, and within the int range once scaled.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class CoordIndex implements Serializable {
+
+    static final long serialVersionUID = 1L;
+
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] slots;
+    private int mask;
+    private double[] lat;
+    private double[] lon;
+    private final double scale; // grid steps per unit, or 0 for double ordinates
+    private int[] fixedLat;
+    private int[] fixedLon;
+    private int size;
+
+    public CoordIndex() {
+        this(1024);
+    }
+
+    public CoordIndex(int expectedSize) {
+        this(expectedSize, 0.0);
+    }
+
+    /**
+     * An index holding int ordinates if the model is fixed, double ordinates otherwise.
+     */
+    public CoordIndex(PrecisionModel precisionModel) {
+        this(1024, precisionModel.getType() == PrecisionModel.FIXED ? precisionModel.getScale() : 0.0);
+    }
+
+    private CoordIndex(int expectedSize, double scale) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        this.scale = scale;
+        if (scale > 0.0) {
+            fixedLat = new int[Math.max(expectedSize, MIN_CAPACITY)];
+            fixedLon = new int[fixedLat.length];
+        } else {
+            lat = new double[Math.max(expectedSize, MIN_CAPACITY)];
+            lon = new double[lat.length];
+        }
+    }
+
+    public boolean isFixed() {
+        return scale > 0.0;
+    }
+
+    /**
+     * Add a coordinate to the index if it is not already present.
+     *
+     * @return The id of the coordinate, which equals the size of the index prior to the
+     * call if the coordinate is new
+     */
+    public int add(double lat, double lon) {
+        if (scale > 0.0) {
+            return addFixed(fixed(lat), fixed(lon));
+        }
+        int slot = hash(lat, lon) & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (this.lat[id] == lat && this.lon[id] == lon) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        id = size++;
+        if (id == this.lat.length) {
+            this.lat = Arrays.copyOf(this.lat, id * 2);
+            this.lon = Arrays.copyOf(this.lon, id * 2);
+        }
+        this.lat[id] = lat;
+        this.lon[id] = lon;
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * @return The id of the coordinate or -1 if it is not in the index
+     */
+    public int get(double lat, double lon) {
+        if (scale > 0.0) {
+            return getFixed(fixed(lat), fixed(lon));
+        }
+        int slot = hash(lat, lon) & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (this.lat[id] == lat && this.lon[id] == lon) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private int addFixed(int lat, int lon) {
+        int slot = hash(lat, lon) & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (fixedLat[id] == lat && fixedLon[id] == lon) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        id = size++;
+        if (id == fixedLat.length) {
+            fixedLat = Arrays.copyOf(fixedLat, id * 2);
+            fixedLon = Arrays.copyOf(fixedLon, id * 2);
+        }
+        fixedLat[id] = lat;
+        fixedLon[id] = lon;
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    private int getFixed(int lat, int lon) {
+        int slot = hash(lat, lon) & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (fixedLat[id] == lat && fixedLon[id] == lon) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private int fixed(double ordinate) {
+        long steps = Math.round(ordinate * scale);
+        if (steps < Integer.MIN_VALUE || steps > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ordinate " + ordinate + " out of range for scale " + scale);
+        }
+        return (int)steps;
+    }
+
+    public double lat(int id) {
+        return scale > 0.0 ? fixedLat[id] / scale : lat[id];
+    }
+
+    public double lon(int id) {
+        return scale > 0.0 ? fixedLon[id] / scale : lon[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return Element i counts the coordinates held i slots past their home slot, the last
+     * element counting all those further away
+     */
+    public long[] probeHistogram(int buckets) {
+        long[] histogram = new long[buckets];
+        for (int slot = 0; slot < slots.length; slot++) {
+            int id = slots[slot];
+            if (id != EMPTY) {
+                int distance = (slot - (hash(id) & mask)) & mask;
+                histogram[Math.min(distance, buckets - 1)]++;
+            }
+        }
+        return histogram;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(id) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private int hash(int id) {
+        return scale > 0.0 ? hash(fixedLat[id], fixedLon[id]) : hash(lat[id], lon[id]);
+    }
+
+    static int hash(int lat, int lon) {
+        long h = ((long)lat << 32 | (lon & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int)h;
+    }
+
+    static int hash(double lat, double lon) {
+        // adding 0.0 folds -0.0 into 0.0, which compare equal
+        long h = Double.doubleToLongBits(lat + 0.0) * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(lon + 0.0);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int)h;
+    }
+}
@@ -30,6 +30,11 @@ public class DefaultSimplifier implements Simplifier {
         this.maxDistanceTolerance = maxDistanceTolerance;
     }
 
+    @Override
+    public String getIdentity() {
+        return getClass().getName() + "(" + lengthFactor + "," + maxDistanceTolerance + ")";
+    }
+
     /**
      *  Generate a simplified version of a source LineString.
      *  This implementation uses the JTS TopologyPreservingSimplifier. The distance tolerance
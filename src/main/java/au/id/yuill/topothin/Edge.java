@@ -10,8 +10,15 @@ package au.id.yuill.topothin;
 
 import org.locationtech.jts.geom.Coordinate;
 
+import java.util.Map;
+
 /**
  * A holder class for edge data including the end nodes and all the coordinates.
+ * The source coordinates are retained when the edge is simplified, and equality is based
+ * on them so that an edge can still be found after simplification.
+ * <br>Edges are equal when their source coordinates are identical in either direction. The
+ * key is a 64 bit fingerprint of the source coordinates taken in a canonical direction, so
+ * equal edges have equal keys, see EdgeMap.
  *
  * @version 1.0
  * @author Peter Yuill
@@ -20,13 +27,38 @@ public class Edge {
     private TopoCoord node1;
     private TopoCoord node2;
     private Coordinate[] coordArray;
-    private int hash;
+    private Coordinate[] sourceCoordArray;
+    private Coordinate start; // ends and packed interior of the source coordinates once compacted
+    private Coordinate end;
+    private double[] packed;
+    private double[] significance;
+    private long key;
+    private boolean keyed;
+    long order; // position of the first ring edge referring to this edge, see EdgeRegistry
 
     public Edge(TopoCoord node1, TopoCoord node2, Coordinate[] coordArray) {
         this.node1 = node1;
         this.node2 = node2;
         this.coordArray = coordArray;
-        hash = node1.bucketIndex() + node2.bucketIndex();
+        this.sourceCoordArray = coordArray;
+    }
+
+    /**
+     * Create an edge whose coordinates are supplied on first use by loadCoordArray(). The key
+     * must be the key of those coordinates, so that hashing does not load them.
+     */
+    Edge(TopoCoord node1, TopoCoord node2, long key) {
+        this.node1 = node1;
+        this.node2 = node2;
+        this.key = key;
+        this.keyed = true;
+    }
+
+    /**
+     * Supply the source coordinates of an edge created without them.
+     */
+    Coordinate[] loadCoordArray() {
+        throw new IllegalStateException("Edge has no coordinates");
     }
 
     public TopoCoord getNode1() {
@@ -37,52 +69,181 @@ public class Edge {
         return node2;
     }
 
-    public Coordinate[] getCoordArray() { return coordArray; }
+    public Coordinate[] getCoordArray() {
+        if (coordArray == null) {
+            coordArray = getSourceCoordArray();
+        }
+        return coordArray;
+    }
 
     public void setCoordArray(Coordinate[] coordArray) { this.coordArray = coordArray; }
 
+    /**
+     * The source coordinates of a compacted edge are rebuilt on each call.
+     */
+    public Coordinate[] getSourceCoordArray() {
+        if (sourceCoordArray == null) {
+            if (packed != null) {
+                return unpack();
+            }
+            sourceCoordArray = loadCoordArray();
+        }
+        return sourceCoordArray;
+    }
+
+    /**
+     * Hold the source coordinates as packed x and y values, with the end coordinates replaced
+     * by the shared coordinate of their node. The z values of interior coordinates are not kept.
+     * An edge whose coordinates have not been loaded is left as it is.
+     *
+     * @param nodeCoordinates The shared coordinate of each node, added to as nodes are found
+     */
+    void compact(Map<Coordinate, Coordinate> nodeCoordinates) {
+        if (sourceCoordArray == null) {
+            return;
+        }
+        key();
+        Coordinate[] source = sourceCoordArray;
+        int n = source.length;
+        start = shared(source[0], nodeCoordinates);
+        end = shared(source[n - 1], nodeCoordinates);
+        packed = new double[(n - 2) * 2];
+        for (int i = 1; i < n - 1; i++) {
+            packed[(i - 1) * 2] = source[i].x;
+            packed[(i - 1) * 2 + 1] = source[i].y;
+        }
+        if (coordArray == source) {
+            coordArray = null;
+        } else if (coordArray != null) {
+            coordArray[0] = start;
+            coordArray[coordArray.length - 1] = end;
+        }
+        sourceCoordArray = null;
+    }
+
+    private static Coordinate shared(Coordinate coord, Map<Coordinate, Coordinate> nodeCoordinates) {
+        Coordinate node = nodeCoordinates.get(coord);
+        if (node == null) {
+            node = coord;
+            nodeCoordinates.put(coord, coord);
+        }
+        return node;
+    }
+
+    private Coordinate[] unpack() {
+        int n = packed.length / 2 + 2;
+        Coordinate[] coords = new Coordinate[n];
+        coords[0] = start;
+        for (int i = 1; i < n - 1; i++) {
+            coords[i] = new Coordinate(packed[(i - 1) * 2], packed[(i - 1) * 2 + 1]);
+        }
+        coords[n - 1] = end;
+        return coords;
+    }
+
+    /**
+     * @return The significance of each source coordinate, see VertexSignificance, or null if not computed
+     */
+    public double[] getSignificance() { return significance; }
+
+    public void setSignificance(double[] significance) { this.significance = significance; }
+
+    /**
+     * @return The direction independent fingerprint of the source coordinates
+     */
+    public long key() {
+        if (!keyed) {
+            key = key(getSourceCoordArray());
+            keyed = true;
+        }
+        return key;
+    }
+
+    static long key(Coordinate[] coords) {
+        int n = coords.length;
+        boolean forward = isCanonical(coords);
+        long h = n;
+        for (int i = 0; i < n; i++) {
+            Coordinate coord = coords[forward ? i : n - 1 - i];
+            // adding 0.0 folds -0.0 into 0.0, which compare equal
+            h = (h ^ Double.doubleToLongBits(coord.y + 0.0)) * 0x9E3779B97F4A7C15L;
+            h = (Long.rotateLeft(h, 31) ^ Double.doubleToLongBits(coord.x + 0.0)) * 0xC2B2AE3D27D4EB4FL;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * The canonical direction is the one that starts with the lower coordinate, comparing
+     * from both ends inwards until the coordinates differ, so loops are directed as well.
+     */
+    private static boolean isCanonical(Coordinate[] coords) {
+        for (int i = 0, j = coords.length - 1; i < j; i++, j--) {
+            int c = coords[i].compareTo(coords[j]);
+            if (c != 0) {
+                return c < 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if the edges run in the same direction, that is the nodes are the same or,
+     * for a loop, the source coordinates are the same
+     */
     public boolean isForward(Edge that) {
         if (this.equals(that)) {
-            if (this.node1.equals(that.node1)) {
-                return true;
-            } else {
-                return false;
+            if (!this.node1.equals(this.node2)) {
+                return this.node1.equals(that.node1);
             }
+            return this == that || sameCoords(that, true);
         } else {
             throw new RuntimeException("Edges unequal");
         }
     }
 
+    private boolean sameCoords(Edge that, boolean forward) {
+        Coordinate[] thisCoords = this.getSourceCoordArray();
+        Coordinate[] thatCoords = that.getSourceCoordArray();
+        int n = thisCoords.length;
+        if (thatCoords.length != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!thisCoords[i].equals2D(thatCoords[forward ? i : n - 1 - i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public int hashCode() {
-        return hash;
+        long h = key();
+        return (int)(h ^ (h >>> 32));
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Edge) {
             Edge that = (Edge)obj;
-            int listSize = this.coordArray.length;
-            if (that.coordArray.length == listSize) {
-                if (this.node1.equals(that.node1) && this.node2.equals(that.node2)) {
-                    if (this.coordArray[1].equals(that.coordArray[1])) {
-                        return true;
-                    } else {
-                        return false;
-                    }
-                } else if (this.node1.equals(that.node2) && this.node2.equals(that.node1)) {
-                    // the coordinates are reversed
-                    if (this.coordArray[1].equals(that.coordArray[listSize - 2])) {
-                        return true;
-                    } else {
-                        return false;
-                    }
-                } else {
-                    return false;
-                }
-            } else {
+            // nodes are compared first so that coordinates are only loaded for edges joining the same nodes
+            boolean same = this.node1.equals(that.node1) && this.node2.equals(that.node2);
+            boolean reversed = this.node1.equals(that.node2) && this.node2.equals(that.node1);
+            if (!same && !reversed) {
+                return false;
+            }
+            if (this.key() != that.key()) {
                 return false;
             }
+            return (same && sameCoords(that, true)) || (reversed && sameCoords(that, false));
         } else {
             return false;
         }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map of edges keyed on Edge.key(). Entries are held in parallel arrays in insertion order,
+ * with an open addressing table of entry positions probed on the 64 bit key. Entries with
+ * equal keys are confirmed with Edge.equals(), so lookups are exact even if two different
+ * edges share a key.
+ * <br>Removing an entry moves the last entry into its place, so iteration is in insertion
+ * order only while no entries have been removed.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class EdgeMap extends AbstractMap<Edge, Edge> {
+
+    private long[] keys;
+    private Edge[] edges;
+    private Edge[] values;
+    private int[] table; // entry position + 1, 0 for an empty slot
+    private int size = 0;
+
+    public EdgeMap() {
+        this(16);
+    }
+
+    public EdgeMap(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        keys = new long[capacity];
+        edges = new Edge[capacity];
+        values = new Edge[capacity];
+        table = new int[Integer.highestOneBit(capacity - 1) << 2];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Edge && find((Edge)key) >= 0;
+    }
+
+    @Override
+    public Edge get(Object key) {
+        if (key instanceof Edge) {
+            int slot = find((Edge)key);
+            if (slot >= 0) {
+                return values[table[slot] - 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Edge put(Edge edge, Edge value) {
+        long key = edge.key();
+        int mask = table.length - 1;
+        int slot = (int)key & mask;
+        for (int entry = table[slot] - 1; entry >= 0; entry = table[slot] - 1) {
+            if (keys[entry] == key && edges[entry].equals(edge)) {
+                Edge previous = values[entry];
+                values[entry] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            edges = Arrays.copyOf(edges, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        edges[size] = edge;
+        values[size] = value;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return null;
+    }
+
+    @Override
+    public Edge remove(Object key) {
+        if (key instanceof Edge) {
+            int slot = find((Edge)key);
+            if (slot >= 0) {
+                int entry = table[slot] - 1;
+                Edge previous = values[entry];
+                removeEntry(entry, slot);
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(edges, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    @Override
+    public Collection<Edge> values() {
+        return new AbstractCollection<Edge>() {
+            @Override
+            public Iterator<Edge> iterator() {
+                return new EntryIterator<Edge>() {
+                    @Override
+                    Edge get(int entry) {
+                        return values[entry];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Edge> keySet() {
+        return new AbstractSet<Edge>() {
+            @Override
+            public Iterator<Edge> iterator() {
+                return new EntryIterator<Edge>() {
+                    @Override
+                    Edge get(int entry) {
+                        return edges[entry];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<Edge, Edge>> entrySet() {
+        return new AbstractSet<Map.Entry<Edge, Edge>>() {
+            @Override
+            public Iterator<Map.Entry<Edge, Edge>> iterator() {
+                return new EntryIterator<Map.Entry<Edge, Edge>>() {
+                    @Override
+                    Map.Entry<Edge, Edge> get(final int entry) {
+                        return new SimpleEntry<Edge, Edge>(edges[entry], values[entry]) {
+                            @Override
+                            public Edge setValue(Edge value) {
+                                values[entry] = value;
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return The table slot holding the edge, or -1 if absent
+     */
+    private int find(Edge edge) {
+        long key = edge.key();
+        int mask = table.length - 1;
+        int slot = (int)key & mask;
+        for (int entry = table[slot] - 1; entry >= 0; entry = table[slot] - 1) {
+            if (keys[entry] == key && edges[entry].equals(edge)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The table slot referring to the entry
+     */
+    private int slotOf(int entry) {
+        int mask = table.length - 1;
+        int slot = (int)keys[entry] & mask;
+        while (table[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void removeEntry(int entry, int slot) {
+        // shift later slots of the probe sequence back over the emptied slot
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = (int)keys[table[next] - 1] & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+        int last = --size;
+        if (entry != last) {
+            table[slotOf(last)] = entry + 1;
+            keys[entry] = keys[last];
+            edges[entry] = edges[last];
+            values[entry] = values[last];
+        }
+        edges[last] = null;
+        values[last] = null;
+    }
+
+    private void rehash(int tableSize) {
+        table = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = (int)keys[entry] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+    }
+
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        private int next = 0;
+        private int current = -1;
+
+        abstract T get(int entry);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return get(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            removeEntry(current, slotOf(current));
+            // the last entry has moved into the removed position
+            next = current;
+            current = -1;
+        }
+    }
+}
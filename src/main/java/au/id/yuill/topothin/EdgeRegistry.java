@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lock striped registry of edges used when edges are created by several threads. Equal
+ * edges resolve to the instance with the lowest order, which is the instance a single
+ * threaded pass over the rows would have encountered first, so the result does not depend
+ * on thread interleaving.
+ *
+ * @version 1.0
+ * @author agent
+ */
+class EdgeRegistry {
+
+    private static final int STRIPES = 64; // selected by the top 6 bits of the edge key
+
+    private final List<Map<Edge, Edge>> stripes = new ArrayList<>(STRIPES);
+
+    EdgeRegistry() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new EdgeMap());
+        }
+    }
+
+    void register(Edge edge) {
+        Map<Edge, Edge> stripe = stripe(edge);
+        synchronized (stripe) {
+            Edge existing = stripe.get(edge);
+            if (existing == null || edge.order < existing.order) {
+                stripe.put(edge, edge);
+            }
+        }
+    }
+
+    Edge get(Edge edge) {
+        Map<Edge, Edge> stripe = stripe(edge);
+        synchronized (stripe) {
+            return stripe.get(edge);
+        }
+    }
+
+    /**
+     * @return All registered edges in ascending order
+     */
+    List<Edge> edges() {
+        List<Edge> edges = new ArrayList<>();
+        for (Map<Edge, Edge> stripe: stripes) {
+            synchronized (stripe) {
+                edges.addAll(stripe.values());
+            }
+        }
+        edges.sort((e1, e2) -> Long.compare(e1.order, e2.order));
+        return edges;
+    }
+
+    private Map<Edge, Edge> stripe(Edge edge) {
+        // the high bits of the key, as EdgeMap probes on the low bits
+        return stripes.get((int)(edge.key() >>> 58));
+    }
+}
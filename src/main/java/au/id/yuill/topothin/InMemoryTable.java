@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table held in memory, for running the full load, thin and save cycle without a
+ * database. The connection, reader and writer passed to the Table methods are not used and
+ * may be null.
+ * <br>Each populate adds new rows sharing the source geometry, so the table may be loaded
+ * into any number of TopoCoordData instances. Saving records the thinned geometry by row code.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class InMemoryTable implements Table {
+
+    private final String name;
+    private final List<Row> sourceRows = new ArrayList<>();
+    private final Map<String, MultiPolygon> thinned = new HashMap<>();
+
+    public InMemoryTable(String name) {
+        this.name = name;
+    }
+
+    public void add(String code, String rowName, MultiPolygon mp) {
+        Row row = new Row();
+        row.table = this;
+        row.code = code;
+        row.name = rowName;
+        row.mp = mp;
+        sourceRows.add(row);
+    }
+
+    /**
+     * @return The source rows, which must not be added to a TopoCoordData directly
+     */
+    public List<Row> getSourceRows() {
+        return Collections.unmodifiableList(sourceRows);
+    }
+
+    public int vertexCount() {
+        int count = 0;
+        for (Row row: sourceRows) {
+            count += row.mp.getNumPoints();
+        }
+        return count;
+    }
+
+    /**
+     * @return The saved thinned geometry of the row, or null if not saved
+     */
+    public MultiPolygon getThinned(String code) {
+        return thinned.get(code);
+    }
+
+    @Override
+    public void populateTopoCoordData(Connection conn, WKBReader reader, TopoCoordData tcd) throws Exception {
+        for (Row source: sourceRows) {
+            Row row = new Row();
+            row.table = this;
+            row.code = source.code;
+            row.name = source.name;
+            row.mp = source.mp;
+            tcd.addRow(row);
+        }
+    }
+
+    @Override
+    public void saveThinnedGeometry(Connection conn, WKBWriter writer, TopoCoordData tcd) throws Exception {
+        List<Row> rows = tcd.tableMap.get(this);
+        if (rows != null) {
+            saveThinnedGeometry(conn, writer, tcd, rows);
+        }
+    }
+
+    @Override
+    public void saveThinnedGeometry(Connection conn, WKBWriter writer, TopoCoordData tcd,
+                                    Collection<Row> rows) throws Exception {
+        for (Row row: rows) {
+            thinned.put(row.code, row.mp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reusable JDBC load and save for Table implementations.
+ * <br><br>Loading streams a query with a configurable fetch size. WKB decoding is done by
+ * the executor while a single consumer thread adds the decoded rows to the TopoCoordData
+ * in query order. A bounded queue between the two limits the number of rows in flight.
+ * <br>Saving encodes WKB with the executor and writes it with batched prepared statements,
+ * encoding the next batch while the current one executes. The WKB is encoded either from
+ * the thinned polygons of the rows or directly from their edges.
+ * <br>When loading or saving fails or is interrupted, the decoding or encoding already
+ * submitted to the executor is cancelled.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class JdbcPipeline {
+
+    private static final Future<Row> END = new FutureTask<>(() -> null);
+
+    private final ExecutorService executor;
+    private int fetchSize = 1000;
+    private int batchSize = 500;
+    private int queueSize = 1000;
+
+    public JdbcPipeline(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public JdbcPipeline(ExecutorService executor, int fetchSize, int batchSize, int queueSize) {
+        this.executor = executor;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Load the rows of a table into the TopoCoordData. The query must return the row code,
+     * the row name and the geometry as WKB in its first three columns, for example
+     * "SELECT code, name, ST_AsBinary(geom) FROM sa2". Polygons are loaded as single member
+     * MultiPolygons. Auto commit is switched off while loading, as some drivers (PostgreSQL
+     * in particular) only honour the fetch size inside a transaction.
+     *
+     * @return The number of rows loaded
+     */
+    public int load(Connection conn, String query, final Table table, final TopoCoordData tcd) throws Exception {
+        final ThreadLocal<WKBReader> readers = ThreadLocal.withInitial(() -> new WKBReader(tcd.factory));
+        final BlockingQueue<Future<Row>> queue = new ArrayBlockingQueue<>(queueSize);
+        final Exception[] failure = new Exception[1];
+        final int[] count = new int[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                for (Future<Row> future = queue.take(); future != END; future = queue.take()) {
+                    tcd.addRow(future.get());
+                    count[0]++;
+                }
+            } catch (Exception e) {
+                failure[0] = e instanceof ExecutionException && e.getCause() instanceof Exception ?
+                        (Exception)e.getCause() : e;
+            }
+        }, "topothin-load");
+        consumer.start();
+        boolean autoCommit = conn.getAutoCommit();
+        boolean failed = true;
+        try {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                try (ResultSet rs = stmt.executeQuery(query)) {
+                    while (rs.next() && consumer.isAlive()) {
+                        final String code = rs.getString(1);
+                        final String name = rs.getString(2);
+                        final byte[] wkb = rs.getBytes(3);
+                        Future<Row> future = executor.submit(() -> {
+                            Row row = new Row();
+                            row.table = table;
+                            row.code = code;
+                            row.name = name;
+                            row.mp = toMultiPolygon(readers.get().read(wkb), tcd);
+                            return row;
+                        });
+                        while (!queue.offer(future, 100, TimeUnit.MILLISECONDS)) {
+                            if (!consumer.isAlive()) {
+                                future.cancel(true);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            failed = false;
+        } finally {
+            if (failed) {
+                consumer.interrupt();
+            } else {
+                while (consumer.isAlive() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                    // the consumer is still draining the queue
+                }
+            }
+            consumer.join();
+            // rows left in the queue by a failed consumer are never added
+            for (Future<Row> future: queue) {
+                if (future != END) {
+                    future.cancel(true);
+                }
+            }
+            conn.setAutoCommit(autoCommit);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return count[0];
+    }
+
+    /**
+     * Save the thinned geometry of the rows of a table. The statement must take the geometry
+     * as WKB and the row code as its first and second parameters, for example
+     * "UPDATE sa2 SET geom_thin = ST_GeomFromWKB(?, 4283) WHERE code = ?". Committing is
+     * left to the caller.
+     *
+     * @return The number of rows saved
+     */
+    public int save(Connection conn, String update, Table table, TopoCoordData tcd) throws Exception {
+        List<Row> rows = tcd.tableMap.get(table);
+        if (rows == null) {
+            return 0;
+        }
+        return save(conn, update, rows);
+    }
+
+    /**
+     * Save the thinned geometry of the rows, such as the rows changed by TopoCoordData.updateRows().
+     *
+     * @return The number of rows saved
+     */
+    public int save(Connection conn, String update, Collection<Row> rows) throws Exception {
+        final ThreadLocal<WKBWriter> writers = ThreadLocal.withInitial(WKBWriter::new);
+        return save(conn, update, rows, row -> writers.get().write(row.mp));
+    }
+
+    /**
+     * Save the thinned geometry of the rows of a table as for save(), encoding the WKB of
+     * each row directly from its edges with ThinnedWkbWriter. The rows need not have been
+     * through createThinnedPolygons(), their polygons are never built and row.mp is unchanged.
+     * A row whose edges do not form valid rings fails the save.
+     *
+     * @return The number of rows saved
+     */
+    public int saveFromEdges(Connection conn, String update, Table table, TopoCoordData tcd) throws Exception {
+        List<Row> rows = tcd.tableMap.get(table);
+        if (rows == null) {
+            return 0;
+        }
+        return saveFromEdges(conn, update, rows);
+    }
+
+    /**
+     * Save the thinned geometry of the rows encoded directly from their edges.
+     *
+     * @return The number of rows saved
+     */
+    public int saveFromEdges(Connection conn, String update, Collection<Row> rows) throws Exception {
+        final ThreadLocal<ThinnedWkbWriter> writers = ThreadLocal.withInitial(ThinnedWkbWriter::new);
+        return save(conn, update, rows, row -> writers.get().toBytes(row));
+    }
+
+    private int save(Connection conn, String update, Collection<Row> rowCollection, Encoder encoder) throws Exception {
+        List<Row> rows = new ArrayList<>(rowCollection);
+        List<Future<byte[]>> batch = null;
+        List<Future<byte[]>> next = null;
+        boolean saved = false;
+        try (PreparedStatement ps = conn.prepareStatement(update)) {
+            batch = encode(rows, 0, encoder);
+            for (int start = 0; start < rows.size(); start += batchSize) {
+                next = encode(rows, start + batchSize, encoder);
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        ps.setBytes(1, batch.get(i).get());
+                    } catch (ExecutionException ee) {
+                        throw ee.getCause() instanceof Exception ? (Exception)ee.getCause() : ee;
+                    }
+                    ps.setString(2, rows.get(start + i).code);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                batch = next;
+            }
+            saved = true;
+        } finally {
+            if (!saved) {
+                cancel(batch);
+                cancel(next);
+            }
+        }
+        return rows.size();
+    }
+
+    private static void cancel(Collection<? extends Future<?>> futures) {
+        if (futures != null) {
+            for (Future<?> future: futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private List<Future<byte[]>> encode(List<Row> rows, int start, final Encoder encoder) {
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (int i = start; i < Math.min(rows.size(), start + batchSize); i++) {
+            final Row row = rows.get(i);
+            futures.add(executor.submit(() -> encoder.encode(row)));
+        }
+        return futures;
+    }
+
+    private static MultiPolygon toMultiPolygon(Geometry geom, TopoCoordData tcd) {
+        if (geom instanceof Polygon) {
+            return tcd.factory.createMultiPolygon(new Polygon[] {(Polygon)geom});
+        }
+        return (MultiPolygon)geom;
+    }
+
+    private interface Encoder {
+        byte[] encode(Row row) throws Exception;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A holder class for the measurements of a completed phase. The counts are those of the
+ * TopoCoordData at the end of the phase. Histograms are only present for the phases they
+ * describe and are otherwise null.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class PhaseStats {
+
+    public static final int PROBE_BUCKETS = 16;
+    public static final int SIZE_BUCKETS = 24;
+    public static final int REDUCTION_BUCKETS = 11;
+
+    public TopoListener.Phase phase;
+    public long wallNanos;
+    public int rows;
+    public long points; // coordinates loaded, including repeats
+    public int vertices; // distinct coordinates
+    public int nodes;
+    public int edges;
+    public int failures;
+    /**
+     * LOAD and FIND_NODES: element i counts the distinct coordinates found i probes past their
+     * home bucket of the coordinate index, the last element counting all longer probes.
+     */
+    public long[] probeLengths;
+    /**
+     * CREATE_EDGES and SIMPLIFY_EDGES: element i counts the edges with from 2^i to 2^(i+1)-1
+     * source vertices.
+     */
+    public long[] edgeSizes;
+    /**
+     * SIMPLIFY_EDGES: element i counts the edges keeping from i tenths to just under (i+1)
+     * tenths of their source vertices, the last element counting edges keeping all of them.
+     */
+    public long[] reductions;
+    /**
+     * LOAD and CREATE_THINNED_POLYGONS: measurements of each table, in table order.
+     */
+    public Map<Table, TableStats> tables = new LinkedHashMap<>();
+
+    public PhaseStats(TopoListener.Phase phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * The measurements of a table in a phase. For LOAD the vertices are those loaded, for
+     * CREATE_THINNED_POLYGONS they are those of the thinned geometry.
+     */
+    public static class TableStats {
+        public int rows;
+        public long vertices;
+        public long nanos;
+        public int failures;
+    }
+}
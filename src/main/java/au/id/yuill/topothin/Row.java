@@ -24,4 +24,5 @@ public class Row {
     public String name;
     public MultiPolygon mp;
     public List<TopoPoly> topoPolyList;
+    int[] ringIds; // store ids of the source rings, used to update a built topology
 }
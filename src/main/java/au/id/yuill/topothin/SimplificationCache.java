@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Simplified edges kept between runs, so that edges unchanged since the previous run are
+ * not simplified again. Set on a TopoCoordData it is consulted by simplifyEdge() for every
+ * edge simplified singly. Edges given to a BatchSimplifier, such as TopologySafeSimplifier,
+ * are neither looked up nor cached, as the result for each edge depends on the other edges
+ * and is not determined by its own coordinates.
+ * <br><br>An entry is keyed by a 64 bit fingerprint of the coordinates being simplified, taken
+ * in their order, and holds their number, their first and last coordinates and the indexes
+ * of the vertices kept. A hit must match the number and the end coordinates as well as the
+ * fingerprint, and rebuilds the simplified array from the coordinates of the edge itself. A
+ * result that is not a subsequence of its source is not cached. The cache holds results for a single simplifier identity, see
+ * Simplifier.getIdentity(), and reading a file written for another identity gives an empty
+ * cache. Once the maximum number of entries is reached the least recently used entry is
+ * dropped as each new one is added.
+ * <br><br>The file holds a header with the identity and entry count followed by the entries,
+ * least recently used first. A file written by another version of the format gives an empty
+ * cache. Methods are synchronized, so the cache can be used by
+ * simplifyEdges(ExecutorService).
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class SimplificationCache {
+
+    private static final long MAGIC = 0x544F504F43414348L; // TOPOCACH
+    private static final int VERSION = 2;
+
+    private final String identity;
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Entry> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param identity The identity of the simplifier whose results are cached
+     * @param maxEntries The number of edges held before the least recently used is dropped
+     */
+    public SimplificationCache(String identity, final int maxEntries) {
+        if (identity == null) {
+            throw new IllegalArgumentException("Simplifier results cannot be cached without an identity");
+        }
+        this.identity = identity;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Read the cache written to a file, or create an empty cache if there is no file or it
+     * was written for another identity or version.
+     */
+    public static SimplificationCache read(Path path, String identity, int maxEntries) throws IOException {
+        SimplificationCache cache = new SimplificationCache(identity, maxEntries);
+        if (!Files.exists(path)) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException("Not a simplification cache: " + path);
+            }
+            if (in.readInt() != VERSION || !identity.equals(in.readUTF())) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int e = 0; e < count; e++) {
+                long key = in.readLong();
+                Entry entry = new Entry(in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                        new int[in.readInt()]);
+                for (int i = 0; i < entry.kept.length; i++) {
+                    entry.kept[i] = in.readInt();
+                }
+                cache.entries.put(key, entry);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Write the cache to a file, replacing it only once the whole cache has been written.
+     */
+    public synchronized void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent == null ? Paths.get(".") : parent, "topocache", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(identity);
+                out.writeInt(entries.size());
+                for (Map.Entry<Long, Entry> e: entries.entrySet()) {
+                    out.writeLong(e.getKey());
+                    Entry entry = e.getValue();
+                    out.writeInt(entry.count);
+                    out.writeDouble(entry.x0);
+                    out.writeDouble(entry.y0);
+                    out.writeDouble(entry.xn);
+                    out.writeDouble(entry.yn);
+                    out.writeInt(entry.kept.length);
+                    for (int index: entry.kept) {
+                        out.writeInt(index);
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return The simplified coordinates, taken from coords, or null if they are not cached.
+     * An entry with the same fingerprint but another number of coordinates or other end
+     * coordinates is a miss.
+     */
+    public Coordinate[] get(Coordinate[] coords) {
+        int[] kept;
+        synchronized (this) {
+            Entry entry = entries.get(key(coords));
+            if (entry == null || !entry.matches(coords)) {
+                misses++;
+                return null;
+            }
+            hits++;
+            kept = entry.kept;
+        }
+        Coordinate[] simple = new Coordinate[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            simple[i] = coords[kept[i]];
+        }
+        return simple;
+    }
+
+    /**
+     * Cache the simplified coordinates of coords if they are a subsequence of them, first and
+     * last included.
+     */
+    public void put(Coordinate[] coords, Coordinate[] simple) {
+        int n = coords.length;
+        if (simple.length == 0 || simple.length > n) {
+            return;
+        }
+        int[] kept = new int[simple.length];
+        int i = 0;
+        for (int k = 0; k < simple.length; k++) {
+            while (i < n && coords[i] != simple[k] && !coords[i].equals2D(simple[k])) {
+                i++;
+            }
+            if (i == n) {
+                return;
+            }
+            kept[k] = i++;
+        }
+        if (kept[0] != 0 || kept[kept.length - 1] != n - 1) {
+            return;
+        }
+        long key = key(coords);
+        Entry entry = new Entry(n, coords[0].x, coords[0].y, coords[n - 1].x, coords[n - 1].y, kept);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * A fingerprint of the coordinates in their order, unlike Edge.key(), as simplification
+     * need not give the same vertices in both directions.
+     */
+    static long key(Coordinate[] coords) {
+        long h = coords.length;
+        for (Coordinate coord: coords) {
+            // adding 0.0 folds -0.0 into 0.0, which compare equal
+            h = (h ^ Double.doubleToLongBits(coord.y + 0.0)) * 0x9E3779B97F4A7C15L;
+            h = (Long.rotateLeft(h, 31) ^ Double.doubleToLongBits(coord.x + 0.0)) * 0xC2B2AE3D27D4EB4FL;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * The vertices kept from a source, with enough of the source to reject another source
+     * with the same fingerprint.
+     */
+    private static class Entry {
+        final int count;
+        final double x0;
+        final double y0;
+        final double xn;
+        final double yn;
+        final int[] kept;
+
+        Entry(int count, double x0, double y0, double xn, double yn, int[] kept) {
+            this.count = count;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.xn = xn;
+            this.yn = yn;
+            this.kept = kept;
+        }
+
+        boolean matches(Coordinate[] coords) {
+            int n = coords.length;
+            return n == count && coords[0].x == x0 && coords[0].y == y0
+                    && coords[n - 1].x == xn && coords[n - 1].y == yn;
+        }
+    }
+}
@@ -27,4 +27,17 @@ public interface Simplifier {
      * @return The simplified LineString
      */
     public LineString simplify(LineString source);
+
+    /**
+     * A description of the algorithm and its parameters, equal for two simplifiers exactly
+     * when they simplify every line the same way, so that results can be reused between runs,
+     * see SimplificationCache. Implementations start it with the runtime class name, so a
+     * subclass does not share the results of its parent; a subclass with parameters of its
+     * own must add them.
+     *
+     * @return The identity, or null if results must not be reused
+     */
+    public default String getIdentity() {
+        return null;
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the phases of a TopoCoordData build and summarises them as text for a log or
+ * as JSON for comparing runs. At most 100 row failures are kept, though all are counted.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class SummaryReporter implements TopoListener {
+
+    private static final int MAX_FAILURES = 100;
+
+    private final List<PhaseStats> phases = new ArrayList<>();
+    private final List<String[]> failures = new ArrayList<>();
+    private int failureCount = 0;
+
+    @Override
+    public synchronized void phaseCompleted(PhaseStats stats) {
+        phases.add(stats);
+    }
+
+    @Override
+    public synchronized void rowFailed(Row row, Exception e) {
+        failureCount++;
+        if (failures.size() < MAX_FAILURES) {
+            failures.add(new String[] {String.valueOf(row.table), row.code, String.valueOf(e.getMessage())});
+        }
+    }
+
+    public synchronized List<PhaseStats> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    public synchronized void clear() {
+        phases.clear();
+        failures.clear();
+        failureCount = 0;
+    }
+
+    public synchronized String toText() {
+        StringBuilder buf = new StringBuilder();
+        buf.append(String.format(Locale.ROOT, "%-24s %10s %9s %11s %9s %9s %9s%n",
+                "phase", "ms", "rows", "vertices", "nodes", "edges", "failures"));
+        for (PhaseStats stats: phases) {
+            buf.append(String.format(Locale.ROOT, "%-24s %10.1f %9d %11d %9d %9d %9d%n", stats.phase,
+                    stats.wallNanos / 1e6, stats.rows, stats.vertices, stats.nodes, stats.edges, stats.failures));
+            for (Map.Entry<Table, PhaseStats.TableStats> entry: stats.tables.entrySet()) {
+                PhaseStats.TableStats ts = entry.getValue();
+                buf.append(String.format(Locale.ROOT, "  %-22s %10.1f %9d %11d %29d%n", entry.getKey(),
+                        ts.nanos / 1e6, ts.rows, ts.vertices, ts.failures));
+            }
+            appendHistogram(buf, "probe lengths", stats.probeLengths);
+            appendHistogram(buf, "edge sizes (log2)", stats.edgeSizes);
+            appendHistogram(buf, "vertices kept (tenths)", stats.reductions);
+        }
+        if (failureCount > 0) {
+            buf.append("failures: ").append(failureCount).append(System.lineSeparator());
+            for (String[] failure: failures) {
+                buf.append("  ").append(failure[0]).append(' ').append(failure[1]).append(": ")
+                        .append(failure[2]).append(System.lineSeparator());
+            }
+        }
+        return buf.toString();
+    }
+
+    public synchronized String toJson() {
+        StringBuilder buf = new StringBuilder("{\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            PhaseStats stats = phases.get(i);
+            buf.append(i == 0 ? "{" : ",{");
+            buf.append("\"phase\":\"").append(stats.phase).append('"');
+            buf.append(",\"wallNanos\":").append(stats.wallNanos);
+            buf.append(",\"rows\":").append(stats.rows);
+            buf.append(",\"points\":").append(stats.points);
+            buf.append(",\"vertices\":").append(stats.vertices);
+            buf.append(",\"nodes\":").append(stats.nodes);
+            buf.append(",\"edges\":").append(stats.edges);
+            buf.append(",\"failures\":").append(stats.failures);
+            appendArray(buf, "probeLengths", stats.probeLengths);
+            appendArray(buf, "edgeSizes", stats.edgeSizes);
+            appendArray(buf, "reductions", stats.reductions);
+            buf.append(",\"tables\":[");
+            boolean first = true;
+            for (Map.Entry<Table, PhaseStats.TableStats> entry: stats.tables.entrySet()) {
+                PhaseStats.TableStats ts = entry.getValue();
+                buf.append(first ? "{" : ",{");
+                first = false;
+                buf.append("\"table\":");
+                buf.append(TopoJsonWriter.quote(String.valueOf(entry.getKey())));
+                buf.append(",\"rows\":").append(ts.rows);
+                buf.append(",\"vertices\":").append(ts.vertices);
+                buf.append(",\"nanos\":").append(ts.nanos);
+                buf.append(",\"failures\":").append(ts.failures);
+                buf.append('}');
+            }
+            buf.append("]}");
+        }
+        buf.append("],\"failureCount\":").append(failureCount);
+        buf.append(",\"failures\":[");
+        for (int i = 0; i < failures.size(); i++) {
+            String[] failure = failures.get(i);
+            buf.append(i == 0 ? "{\"table\":" : ",{\"table\":");
+            buf.append(TopoJsonWriter.quote(failure[0]));
+            buf.append(",\"code\":");
+            buf.append(TopoJsonWriter.quote(failure[1]));
+            buf.append(",\"message\":");
+            buf.append(TopoJsonWriter.quote(failure[2]));
+            buf.append('}');
+        }
+        buf.append("]}");
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+
+    private static void appendHistogram(StringBuilder buf, String name, long[] histogram) {
+        if (histogram == null) {
+            return;
+        }
+        int last = histogram.length - 1;
+        while (last > 0 && histogram[last] == 0) {
+            last--;
+        }
+        buf.append("  ").append(name).append(':');
+        for (int i = 0; i <= last; i++) {
+            buf.append(' ').append(histogram[i]);
+        }
+        buf.append(System.lineSeparator());
+    }
+
+    private static void appendArray(StringBuilder buf, String name, long[] values) {
+        if (values == null) {
+            return;
+        }
+        buf.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < values.length; i++) {
+            buf.append(i == 0 ? "" : ",").append(values[i]);
+        }
+        buf.append(']');
+    }
+}
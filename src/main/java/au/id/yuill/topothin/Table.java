@@ -12,6 +12,7 @@ import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKBWriter;
 
 import java.sql.Connection;
+import java.util.Collection;
 
 /**
  * A source spatial table.
@@ -24,4 +25,13 @@ public interface Table {
     public void populateTopoCoordData(Connection conn, WKBReader reader, TopoCoordData tcd) throws Exception;
 
     public void saveThinnedGeometry(Connection conn, WKBWriter writer, TopoCoordData tcd) throws Exception;
+
+    /**
+     * Save the thinned geometry of some rows of this table, such as the rows changed by
+     * TopoCoordData.updateRows(). The default implementation saves every row.
+     */
+    public default void saveThinnedGeometry(Connection conn, WKBWriter writer, TopoCoordData tcd,
+                                            Collection<Row> rows) throws Exception {
+        saveThinnedGeometry(conn, writer, tcd);
+    }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the thinned geometry of rows one at a time from TopoCoordData.writeThinnedPolygons().
+ *
+ * @version 1.0
+ * @author agent
+ */
+public interface ThinnedRowSink {
+
+    /**
+     * Save the thinned geometry of a row.
+     *
+     * @param wkb The MultiPolygon WKB of the row from its position to its limit. The buffer is
+     *            reused for the next row, so its content must be copied if it is to be kept.
+     */
+    public void save(Row row, ByteBuffer wkb) throws Exception;
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBConstants;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Writes the thinned geometry of a row as MultiPolygon WKB directly from the edges of its
+ * TopoPolys, without building the polygons. The output is that of a 2 dimensional JTS
+ * WKBWriter for the polygons createThinnedPolygons() would build.
+ * <br>The size of each ring is computed from the edge arrays before it is written and the
+ * WKB is written into a buffer reused for each row. A writer is not thread safe.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ThinnedWkbWriter {
+
+    private final int byteOrder;
+    private ByteBuffer buffer;
+    private int numPoints;
+
+    public ThinnedWkbWriter() {
+        this(ByteOrderValues.BIG_ENDIAN);
+    }
+
+    /**
+     * @param byteOrder ByteOrderValues.BIG_ENDIAN or ByteOrderValues.LITTLE_ENDIAN
+     */
+    public ThinnedWkbWriter(int byteOrder) {
+        this.byteOrder = byteOrder;
+        buffer = allocate(4096);
+    }
+
+    /**
+     * Write the thinned geometry of a row.
+     *
+     * @return The WKB from position 0 to the limit of the buffer, which is overwritten by the
+     * next call
+     * @throws Exception If the edges of a ring do not join or do not form a valid ring
+     */
+    public ByteBuffer write(Row row) throws Exception {
+        int size = 9;
+        numPoints = 0;
+        for (TopoPoly poly: row.topoPolyList) {
+            size += 9 + ringSize(poly.exterior);
+            for (List<RingEdge> interior: poly.interiorList) {
+                size += ringSize(interior);
+            }
+        }
+        if (buffer.capacity() < size) {
+            buffer = allocate(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        writeHeader(WKBConstants.wkbMultiPolygon, row.topoPolyList.size());
+        for (TopoPoly poly: row.topoPolyList) {
+            writeHeader(WKBConstants.wkbPolygon, 1 + poly.interiorList.size());
+            writeRing(poly.exterior);
+            for (List<RingEdge> interior: poly.interiorList) {
+                writeRing(interior);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return A copy of the WKB of the thinned geometry of a row
+     */
+    public byte[] toBytes(Row row) throws Exception {
+        ByteBuffer wkb = write(row);
+        byte[] bytes = new byte[wkb.remaining()];
+        wkb.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return The number of points written for the last row
+     */
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(byteOrder == ByteOrderValues.LITTLE_ENDIAN ?
+                ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @return The size in bytes of a ring: its point count and the x and y of each point,
+     * checking that the edges join and form a closed ring as LinearRing requires
+     */
+    private int ringSize(List<RingEdge> edgeList) throws Exception {
+        int points = 0;
+        Coordinate first = null;
+        Coordinate last = null;
+        for (RingEdge ringEdge: edgeList) {
+            Coordinate[] ec = ringEdge.edge.getCoordArray();
+            Coordinate start = ringEdge.forward ? ec[0] : ec[ec.length - 1];
+            if (last == null) {
+                first = start;
+                points = 1;
+            } else if (!start.equals(last)) {
+                throw new Exception("Invalid edge sequence: " + ringEdge.forward + " " + start + " " + last);
+            }
+            last = ringEdge.forward ? ec[ec.length - 1] : ec[0];
+            points += ec.length - 1;
+        }
+        if (points > 0 && !first.equals2D(last)) {
+            throw new IllegalArgumentException("Points of LinearRing do not form a closed linestring");
+        }
+        if (points > 0 && points < 4) {
+            throw new IllegalArgumentException("Invalid number of points in LinearRing (found "
+                    + points + " - must be 0 or >= 4)");
+        }
+        numPoints += points;
+        return 4 + points * 16;
+    }
+
+    private void writeHeader(int geometryType, int count) {
+        buffer.put((byte)(byteOrder == ByteOrderValues.LITTLE_ENDIAN ? WKBConstants.wkbNDR : WKBConstants.wkbXDR));
+        buffer.putInt(geometryType);
+        buffer.putInt(count);
+    }
+
+    private void writeRing(List<RingEdge> edgeList) {
+        int countPosition = buffer.position();
+        buffer.putInt(0);
+        int points = 0;
+        for (RingEdge ringEdge: edgeList) {
+            Coordinate[] ec = ringEdge.edge.getCoordArray();
+            if (ringEdge.forward) {
+                for (int j = points == 0 ? 0 : 1; j < ec.length; j++) {
+                    buffer.putDouble(ec[j].x).putDouble(ec[j].y);
+                    points++;
+                }
+            } else {
+                for (int j = points == 0 ? ec.length - 1 : ec.length - 2; j >= 0; j--) {
+                    buffer.putDouble(ec[j].x).putDouble(ec[j].y);
+                    points++;
+                }
+            }
+        }
+        buffer.putInt(countPosition, points);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import java.util.List;
+
+/**
+ * A destination for the thinned rows of each tile.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public interface TileSink {
+
+    /**
+     * Save thinned rows. Each row is saved exactly once across all tiles.
+     *
+     * @param rows The rows owned by a tile, holding their thinned geometry
+     */
+    public void save(List<Row> rows) throws Exception;
+}
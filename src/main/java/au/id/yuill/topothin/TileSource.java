@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.List;
+
+/**
+ * A source of rows that can be queried by area, used for tiled processing.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public interface TileSource {
+
+    /**
+     * @return The envelope of all rows
+     */
+    public Envelope getExtent() throws Exception;
+
+    /**
+     * Fetch the rows whose envelope intersects the query envelope. Each call must return new
+     * Row instances holding their source geometry, as rows are modified by processing.
+     *
+     * @param query The area of interest
+     * @return The rows intersecting the area
+     */
+    public List<Row> getRows(Envelope query) throws Exception;
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thins datasets too large to hold in memory by processing them one tile of a regular grid
+ * at a time, row by row and column by column within a row.
+ * <br><br>Each row is owned by the tile containing the maximum corner of its envelope, the
+ * last tile its envelope touches, so its rings have been seen by every other tile they pass
+ * through before it is assembled. A tile loads only the rows whose envelope touches it, so
+ * every ring through a vertex within the tile is loaded and nodes within the tile are found
+ * exactly as they would be for the whole dataset. Nodes are also forced at both ends of every
+ * ring segment that crosses from one tile to another, so every edge other than such a segment
+ * lies within a single tile. Node detection outside the tile is incomplete and is discarded,
+ * except at the ends of edges kept by earlier tiles and the forced nodes.
+ * <br><br>Edges within the tile are simplified. An edge used by a row owned by a later tile is
+ * kept and reused, rather than simplified again, by the tiles that assemble its other rows,
+ * so both sides of a tile boundary are thinned identically. It is dropped once the last tile
+ * owning one of its rows has been processed. These boundary edges are the only state carried
+ * between tiles, so memory is bounded by the rows touching a tile and the edges along the
+ * tiles still to come.
+ * <br><br>Output differs from thinning the whole dataset at once only where rings cross tile
+ * boundaries, where the forced nodes are kept.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TiledThinner {
+
+    private final Simplifier simplifier;
+    private final int srid;
+    private final int columns;
+    private final int rows;
+    private final Map<Edge, Edge> boundaryEdges = new EdgeMap();
+    private final Map<Integer, List<Edge>> evictions = new HashMap<>();
+
+    public TiledThinner(Simplifier simplifier, int srid, int columns, int rows) {
+        this.simplifier = simplifier;
+        this.srid = srid;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public void run(TileSource source, TileSink sink) throws Exception {
+        Grid grid = new Grid(source.getExtent(), columns, rows);
+        for (int tile = 0; tile < columns * rows; tile++) {
+            processTile(source, sink, grid, tile);
+        }
+    }
+
+    /**
+     * @return The number of edges currently kept for reuse by later tiles
+     */
+    public int boundaryEdgeCount() {
+        return boundaryEdges.size();
+    }
+
+    private void processTile(TileSource source, TileSink sink, Grid grid, int tile) throws Exception {
+        TopoCoordData tcd = new TopoCoordData(simplifier, srid);
+        tcd.canonicalIslandNodes = true;
+        List<Row> loaded = new ArrayList<>();
+        List<Row> owned = new ArrayList<>();
+        for (Row row: source.getRows(grid.query(tile))) {
+            if (grid.touches(row, tile)) {
+                tcd.addRow(row);
+                loaded.add(row);
+                if (grid.owner(row) == tile) {
+                    owned.add(row);
+                }
+            }
+        }
+        if (!owned.isEmpty()) {
+            TopoStore store = tcd.store;
+            tcd.findNodes();
+            for (int v = store.nextNode(0); v >= 0; v = store.nextNode(v + 1)) {
+                if (grid.tile(store.lon(v), store.lat(v)) != tile) {
+                    store.clearNode(v);
+                }
+            }
+            for (Edge edge: boundaryEdges.values()) {
+                Coordinate[] coords = edge.getSourceCoordArray();
+                setNode(store, coords[0]);
+                setNode(store, coords[coords.length - 1]);
+            }
+            for (Row row: loaded) {
+                forceNodes(store, grid, row);
+            }
+            tcd.createEdges(loaded);
+            int[] ringOwners = new int[store.ringCount()];
+            for (Row row: loaded) {
+                for (int ring: row.ringIds) {
+                    ringOwners[ring] = grid.owner(row);
+                }
+            }
+            for (Edge edge: tcd.edgeMap.values()) {
+                int edgeTile = grid.tile(edge.getSourceCoordArray());
+                if (edgeTile == tile) {
+                    tcd.simplifyEdge(edge);
+                    int last = lastOwner(store, edge, ringOwners);
+                    if (last > tile) {
+                        boundaryEdges.put(edge, edge);
+                        evictions.computeIfAbsent(last, t -> new ArrayList<>()).add(edge);
+                    }
+                } else if (edgeTile >= 0 && edgeTile < tile) {
+                    Edge previous = boundaryEdges.get(edge);
+                    if (previous != null) {
+                        edge.setCoordArray(reuse(previous, edge));
+                    } else {
+                        tcd.simplifyEdge(edge); // not used by an owned row
+                    }
+                }
+                // edges crossing tiles are single segments and are kept as they are, edges
+                // in later tiles are not used by owned rows
+            }
+            for (Row row: owned) {
+                row.mp = tcd.createThinnedPolygon(row);
+            }
+            sink.save(owned);
+        }
+        List<Edge> evicted = evictions.remove(tile);
+        if (evicted != null) {
+            for (Edge edge: evicted) {
+                boundaryEdges.remove(edge);
+            }
+        }
+    }
+
+    private static void setNode(TopoStore store, Coordinate coord) {
+        int v = store.vertexId(coord);
+        if (v >= 0) {
+            store.setNode(v);
+        }
+    }
+
+    /**
+     * Force nodes at both ends of every segment of the rings of the row that crosses tiles.
+     */
+    private static void forceNodes(TopoStore store, Grid grid, Row row) {
+        for (int i = 0; i < row.mp.getNumGeometries(); i++) {
+            Polygon poly = (Polygon)row.mp.getGeometryN(i);
+            forceNodes(store, grid, poly.getExteriorRing().getCoordinateSequence());
+            for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                forceNodes(store, grid, poly.getInteriorRingN(j).getCoordinateSequence());
+            }
+        }
+    }
+
+    private static void forceNodes(TopoStore store, Grid grid, CoordinateSequence seq) {
+        int previous = grid.tile(seq.getX(0), seq.getY(0));
+        for (int k = 1; k < seq.size(); k++) {
+            int current = grid.tile(seq.getX(k), seq.getY(k));
+            if (current != previous) {
+                setNode(store, seq.getCoordinate(k - 1));
+                setNode(store, seq.getCoordinate(k));
+            }
+            previous = current;
+        }
+    }
+
+    /**
+     * @return The last tile owning a row with a ring along the edge. All interior vertices
+     * of an edge belong to the same rings, so one is tested; for an edge with no interior
+     * vertex a ring containing both nodes is assumed to pass along it.
+     */
+    private static int lastOwner(TopoStore store, Edge edge, int[] ringOwners) {
+        Coordinate[] coords = edge.getSourceCoordArray();
+        BitSet rings = ringSet(store, coords[1]);
+        if (coords.length == 2) {
+            rings.and(ringSet(store, coords[0]));
+        }
+        int last = -1;
+        for (int ring = rings.nextSetBit(0); ring >= 0; ring = rings.nextSetBit(ring + 1)) {
+            last = Math.max(last, ringOwners[ring]);
+        }
+        return last;
+    }
+
+    private static BitSet ringSet(TopoStore store, Coordinate coord) {
+        BitSet rings = new BitSet();
+        for (int ring: store.getRingIds(store.vertexId(coord))) {
+            rings.set(ring);
+        }
+        return rings;
+    }
+
+    /**
+     * @return The simplified coordinates of an edge kept by an earlier tile, in the direction of edge
+     */
+    private static Coordinate[] reuse(Edge previous, Edge edge) {
+        Coordinate[] simple = previous.getCoordArray();
+        if (!previous.isForward(edge)) {
+            Coordinate[] reversed = new Coordinate[simple.length];
+            for (int i = 0; i < simple.length; i++) {
+                reversed[i] = simple[simple.length - 1 - i];
+            }
+            simple = reversed;
+        }
+        return simple;
+    }
+
+    /**
+     * The tiles of the extent, numbered row by row in the order they are processed. Tiles
+     * include their minimum edges, and the last column and row also include their maximum
+     * edges.
+     */
+    private static class Grid {
+        private final Envelope extent;
+        private final int columns;
+        private final int rows;
+        private final double width;
+        private final double height;
+
+        Grid(Envelope extent, int columns, int rows) {
+            this.extent = extent;
+            this.columns = columns;
+            this.rows = rows;
+            this.width = extent.getWidth() / columns;
+            this.height = extent.getHeight() / rows;
+        }
+
+        int tile(double x, double y) {
+            return index((y - extent.getMinY()) / height, rows) * columns + index((x - extent.getMinX()) / width, columns);
+        }
+
+        private static int index(double position, int count) {
+            if (!(position > 0.0)) {
+                return 0; // includes NaN from an empty extent
+            }
+            return (int)Math.min(count - 1, Math.floor(position));
+        }
+
+        /**
+         * @return The tile containing all the coordinates, or -1 if they are in several tiles
+         */
+        int tile(Coordinate[] coords) {
+            int tile = tile(coords[0].x, coords[0].y);
+            for (int i = 1; i < coords.length; i++) {
+                if (tile(coords[i].x, coords[i].y) != tile) {
+                    return -1;
+                }
+            }
+            return tile;
+        }
+
+        int owner(Row row) {
+            Envelope env = row.mp.getEnvelopeInternal();
+            return tile(env.getMaxX(), env.getMaxY());
+        }
+
+        boolean touches(Row row, int tile) {
+            Envelope env = row.mp.getEnvelopeInternal();
+            int min = tile(env.getMinX(), env.getMinY());
+            int max = tile(env.getMaxX(), env.getMaxY());
+            int column = tile % columns;
+            int line = tile / columns;
+            return column >= min % columns && column <= max % columns && line >= min / columns && line <= max / columns;
+        }
+
+        /**
+         * @return The envelope of the tile with a margin, so rows touching it are not missed by rounding
+         */
+        Envelope query(int tile) {
+            int i = tile % columns;
+            int j = tile / columns;
+            Envelope cell = new Envelope(extent.getMinX() + i * width, extent.getMinX() + (i + 1) * width,
+                    extent.getMinY() + j * height, extent.getMinY() + (j + 1) * height);
+            cell.expandBy(Math.max(width, height) * 1e-6);
+            return cell;
+        }
+    }
+}
@@ -17,6 +17,8 @@ import java.text.DecimalFormat;
 /**
  * A coordinate with links to the LineStrings that contain it, thus enabling
  * the identification of nodes in LineStrings.
+ * <br><br>Vertices are held by TopoStore. TopoCoords are created only for nodes, shared by
+ * the edges that end there, and as snapshots returned by TopoCoordData.getTopoCoord().
  *
  * @version 1.0
  * @author Peter Yuill
@@ -9,9 +9,19 @@
 package au.id.yuill.topothin;
 
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.io.WKBReader;
 
 import java.io.Serializable;
+import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Function;
 
 /**
  * Maintains a model of the spatial universe under study including:
@@ -28,34 +38,246 @@ public class TopoCoordData implements Serializable {
 
     static final long serialVersionUID = 1L;
 
-    public TopoCoord[][] points = new TopoCoord[65536][];
-    public Map<Edge, Edge> edgeMap = new HashMap<>();
-    public Map<Table,List<Row>> tableMap = new HashMap<>();
-    public int coords;
+    /**
+     * The ways findNodes() can find nodes, both giving the same node set.
+     * <br>MEMBERSHIP builds ring membership by counting and walks the rings of each row,
+     * looking up each vertex.
+     * <br>SORT builds ring membership by sorting the (vertex, ring) pairs recorded while
+     * loading, in parallel when an executor is given, and finds nodes in one scan of the
+     * pairs in load order. It applies to the first findNodes() of rows loaded a whole ring
+     * at a time by addRow(); once any coordinate has been added by addCoordinate(), or a row
+     * removed, MEMBERSHIP is used.
+     */
+    public enum NodeEngine {
+        MEMBERSHIP,
+        SORT
+    }
+
+    private static final ThreadLocal<int[]> KEPT = ThreadLocal.withInitial(() -> new int[256]);
+    private static final AtomicIntegerFieldUpdater<TopoCoordData> COORDS =
+            AtomicIntegerFieldUpdater.newUpdater(TopoCoordData.class, "coords");
+
+    public TopoStore store;
+    public Map<Edge, Edge> edgeMap = new EdgeMap();
+    public Map<Table,List<Row>> tableMap = new ConcurrentHashMap<>();
+    public volatile int coords;
     public GeometryFactory factory;
 
     private Simplifier simplifier;
+    private SimplificationCache simplificationCache;
+    private TopoCoord[] nodeCoords;
+    private List<Row> ringRows = new ArrayList<>();
+    private List<Edge> newEdges;
+    private transient List<TopoListener> listeners;
+    private boolean compacted;
+    private NodeEngine nodeEngine = NodeEngine.MEMBERSHIP;
+    private Map<Table, Integer> layers;
+    private BitSet[] layerNodes; // the nodes of each layer, null unless tables have layers
+    /**
+     * Islands are given a node at their lowest coordinate rather than their first, so that
+     * the same island loaded in separate TopoCoordData instances yields the same edge.
+     */
+    boolean canonicalIslandNodes;
 
     public TopoCoordData() {
         this.simplifier = new DefaultSimplifier();
-        this.factory = new GeometryFactory();
+        this.factory = new GeometryFactory(TopoCoordinateSequenceFactory.instance());
+        this.store = new TopoStore();
     }
 
     public TopoCoordData(Simplifier simplifier, int srid) {
         this.simplifier = simplifier;
-        this.factory = new GeometryFactory(new PrecisionModel(), srid);
+        this.factory = new GeometryFactory(new PrecisionModel(), srid, TopoCoordinateSequenceFactory.instance());
+        this.store = new TopoStore();
+    }
+
+    /**
+     * The coordinates of each row added are snapped to the precision model, so that vertices
+     * differing by less than its grid are treated as one, and a fixed model has the store
+     * hold them as integer grid steps. Repeated coordinates left by snapping are removed and
+     * rings left with fewer than 4 coordinates are dropped, see addRow().
+     */
+    public TopoCoordData(Simplifier simplifier, int srid, PrecisionModel precisionModel) {
+        this.simplifier = simplifier;
+        this.factory = new GeometryFactory(precisionModel, srid, TopoCoordinateSequenceFactory.instance());
+        this.store = new TopoStore(precisionModel);
+    }
+
+    /**
+     * Listeners are told of each phase as it starts and completes. Measurements beyond the
+     * phase timing are only taken while there is a listener.
+     */
+    public void addListener(TopoListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(TopoListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                listeners = null;
+            }
+        }
     }
 
+    /**
+     * Load the tables in order as the LOAD phase.
+     */
+    public void populate(Connection conn, Collection<Table> tables) throws Exception {
+        long start = phaseStarted(TopoListener.Phase.LOAD);
+        WKBReader reader = new WKBReader(factory);
+        Map<Table, PhaseStats.TableStats> tableStats = new LinkedHashMap<>();
+        for (Table table: tables) {
+            List<Row> rows = tableMap.get(table);
+            int rowsBefore = rows == null ? 0 : rows.size();
+            int coordsBefore = coords;
+            long tableStart = System.nanoTime();
+            table.populateTopoCoordData(conn, reader, this);
+            rows = tableMap.get(table);
+            PhaseStats.TableStats stats = new PhaseStats.TableStats();
+            stats.rows = (rows == null ? 0 : rows.size()) - rowsBefore;
+            stats.vertices = coords - coordsBefore;
+            stats.nanos = System.nanoTime() - tableStart;
+            tableStats.put(table, stats);
+        }
+        phaseCompleted(TopoListener.Phase.LOAD, start, tableStats);
+    }
+
+    /**
+     * Load the tables concurrently as the LOAD phase, each table being loaded with its own
+     * connection and WKBReader as a task run by the executor. The vertices loaded for each
+     * table are counted from its new rows, as the point count is shared by all tables.
+     */
+    public void populate(ExecutorService executor, Map<Table, Connection> connections) throws Exception {
+        long phaseStart = phaseStarted(TopoListener.Phase.LOAD);
+        final List<Table> tables = new ArrayList<>(connections.keySet());
+        final PhaseStats.TableStats[] stats = new PhaseStats.TableStats[tables.size()];
+        run(executor, tables.size(), (start, end) -> {
+            for (int t = start; t < end; t++) {
+                Table table = tables.get(t);
+                List<Row> rows = tableMap.get(table);
+                int rowsBefore = rows == null ? 0 : rows.size();
+                long tableStart = System.nanoTime();
+                table.populateTopoCoordData(connections.get(table), new WKBReader(factory), this);
+                stats[t] = new PhaseStats.TableStats();
+                stats[t].nanos = System.nanoTime() - tableStart;
+                rows = tableMap.get(table);
+                if (rows != null) {
+                    synchronized (rows) {
+                        for (Row row: rows.subList(rowsBefore, rows.size())) {
+                            stats[t].rows++;
+                            stats[t].vertices += row.mp.getNumPoints();
+                        }
+                    }
+                }
+            }
+        });
+        Map<Table, PhaseStats.TableStats> tableStats = new LinkedHashMap<>();
+        for (int t = 0; t < tables.size(); t++) {
+            tableStats.put(tables.get(t), stats[t]);
+        }
+        phaseCompleted(TopoListener.Phase.LOAD, phaseStart, tableStats);
+    }
+
+    /**
+     * Add a row, first snapping its geometry to the precision model unless the model is
+     * floating. A snapped row is given a new MultiPolygon, its source geometry is not changed.
+     * <br>Rows may be added by several threads at once, the rows of each table keeping the
+     * order in which they were added. Every row must have a table, as rows are held by table.
+     */
     public void addRow(Row row) {
-        List<Row> rows = tableMap.get(row.table);
-        if (rows == null) {
-            rows = new ArrayList<>();
-            tableMap.put(row.table, rows);
+        checkNotCompacted();
+        if (row.table == null) {
+            throw new IllegalArgumentException("Row " + row.code + " has no table");
+        }
+        if (factory.getPrecisionModel().getType() != PrecisionModel.FLOATING) {
+            row.mp = snap(row.mp);
+        }
+        List<Row> rows = tableMap.computeIfAbsent(row.table, t -> new ArrayList<>());
+        synchronized (rows) {
+            rows.add(row);
         }
-        rows.add(row);
         for (int i = 0; i < row.mp.getNumGeometries(); i++) {
             addPolygon((Polygon)row.mp.getGeometryN(i));
         }
+        List<LineString> rings = sourceRings(row.mp);
+        row.ringIds = new int[rings.size()];
+        for (int i = 0; i < row.ringIds.length; i++) {
+            row.ringIds[i] = store.addRing(rings.get(i));
+        }
+        synchronized (ringRows) {
+            for (int ring: row.ringIds) {
+                while (ringRows.size() <= ring) {
+                    ringRows.add(null);
+                }
+                ringRows.set(ring, row);
+            }
+        }
+    }
+
+    /**
+     * @return The MultiPolygon with coordinates made precise and repeated coordinates removed,
+     * or the MultiPolygon itself if already precise. A polygon is dropped if its exterior ring
+     * collapses.
+     */
+    private MultiPolygon snap(MultiPolygon mp) {
+        List<Polygon> polys = new ArrayList<>();
+        boolean changed = false;
+        for (int i = 0; i < mp.getNumGeometries(); i++) {
+            Polygon poly = (Polygon)mp.getGeometryN(i);
+            LinearRing exterior = snap(poly.getExteriorRing());
+            if (exterior == null) {
+                changed = true;
+                continue;
+            }
+            boolean polyChanged = exterior != poly.getExteriorRing();
+            List<LinearRing> interior = new ArrayList<>();
+            for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                LinearRing ring = snap(poly.getInteriorRingN(j));
+                polyChanged |= ring != poly.getInteriorRingN(j);
+                if (ring != null) {
+                    interior.add(ring);
+                }
+            }
+            if (polyChanged) {
+                poly = factory.createPolygon(exterior, interior.toArray(new LinearRing[interior.size()]));
+                changed = true;
+            }
+            polys.add(poly);
+        }
+        return changed ? factory.createMultiPolygon(polys.toArray(new Polygon[polys.size()])) : mp;
+    }
+
+    /**
+     * @return The ring itself if already precise, a new ring, or null if the ring collapses
+     */
+    private LinearRing snap(LineString ring) {
+        PrecisionModel precisionModel = factory.getPrecisionModel();
+        CoordinateSequence seq = ring.getCoordinateSequence();
+        Coordinate[] snapped = new Coordinate[seq.size()];
+        int size = 0;
+        boolean changed = false;
+        for (int i = 0; i < seq.size(); i++) {
+            double x = precisionModel.makePrecise(seq.getX(i));
+            double y = precisionModel.makePrecise(seq.getY(i));
+            if (size > 0 && snapped[size - 1].x == x && snapped[size - 1].y == y) {
+                changed = true;
+                continue;
+            }
+            Coordinate coord = seq.getCoordinate(i);
+            if (coord.x != x || coord.y != y) {
+                coord = new Coordinate(x, y, coord.z);
+                changed = true;
+            }
+            snapped[size++] = coord;
+        }
+        if (!changed) {
+            return (LinearRing)ring;
+        }
+        return size < 4 ? null : factory.createLinearRing(Arrays.copyOf(snapped, size));
     }
 
     public void addPolygon(Polygon poly) {
@@ -67,108 +289,300 @@ public class TopoCoordData implements Serializable {
     }
 
     public void addLineString(LineString ls) {
+        int ring = store.addRing(ls);
         CoordinateSequence seq = ls.getCoordinateSequence();
-        int size = seq.size();
-        for (int i = 0; i < size; i++) {
-            Coordinate coord = seq.getCoordinate(i);
-            addCoordinate(coord, ls);
+        int[] vertexIds = store.addVertices(ring, seq);
+        COORDS.addAndGet(this, vertexIds.length);
+        if (seq instanceof TopoCoordinateSequence) {
+            ((TopoCoordinateSequence)seq).setVertexIds(store, vertexIds);
         }
     }
 
+    /**
+     * The vertex ids of a loaded LineString if its sequence holds them for this store, or null
+     * if each vertex must be looked up.
+     */
+    private int[] loadedVertexIds(CoordinateSequence seq) {
+        return seq instanceof TopoCoordinateSequence ? ((TopoCoordinateSequence)seq).getVertexIds(store) : null;
+    }
+
     public void addCoordinate(Coordinate coord, LineString lineString) {
-        coords++;
-        TopoCoord p = new TopoCoord();
-        p.lon = coord.x;
-        p.lat = coord.y;
-        p.lineString = new LineString[] {lineString};
-        int bucketIndex = p.bucketIndex();
-        coord.z = bucketIndex;
-        TopoCoord[] leaf = points[bucketIndex];
-        if (leaf == null) {
-            leaf = new TopoCoord[1];
-            leaf[0] = p;
-            points[bucketIndex] = leaf;
-        } else {
-            boolean newTopoCoord = true;
-            for (TopoCoord ltc: leaf) {
-                if (ltc.isGeoEq(p)) { // in the database
-                    newTopoCoord = false;
-                    // look for lineString already in the list - specifically first and last point are the same
-                    boolean newLineString = true;
-                    for (LineString ls: ltc.lineString) {
-                        if (ls == lineString) {
-                            newLineString = false;
-                            break;
-                        }
-                    }
-                    if (newLineString) {
-                        int rSize = ltc.lineString.length;
-                        LineString[] newLsArray = new LineString[rSize + 1];
-                        System.arraycopy(ltc.lineString, 0, newLsArray, 0, rSize);
-                        newLsArray[rSize] = lineString;
-                        ltc.lineString = newLsArray;
-                    }
-                    break; // found in database
-                }
-            }
-            if (newTopoCoord) {
-                TopoCoord[] newLeaf = new TopoCoord[leaf.length + 1];
-                System.arraycopy(leaf, 0, newLeaf, 0, leaf.length);
-                newLeaf[leaf.length] = p;
-                points[bucketIndex] = newLeaf;
-            }
-        }
+        COORDS.incrementAndGet(this);
+        store.addVertex(store.addRing(lineString), coord.y, coord.x);
     }
 
+    /**
+     * Vertices are held in the store rather than as TopoCoords, so the returned TopoCoord is a
+     * new snapshot of the vertex on every call. Unlike the TopoCoord previously held for each
+     * vertex, changes to it, such as setting node, are not reflected in the store and it is
+     * not updated as nodes are found; use store.setNode() and store.clearNode() to change
+     * node status.
+     *
+     * @return A snapshot of the vertex, or null if the coordinate is not a vertex
+     */
     public TopoCoord getTopoCoord(Coordinate coord) {
-        TopoCoord p = new TopoCoord();
-        p.lon = coord.x;
-        p.lat = coord.y;
-        TopoCoord[] leaf = points[(int)coord.z];
-        for (TopoCoord ltc: leaf) {
-            if (ltc.isGeoEq(p)) { // in the database
-                return ltc;
-            }
+        int id = store.vertexId(coord);
+        if (id < 0) {
+            return null;
         }
-        return null;
+        TopoCoord tc = new TopoCoord();
+        tc.lat = store.lat(id);
+        tc.lon = store.lon(id);
+        tc.node = store.isNode(id);
+        tc.lineString = store.getRings(id);
+        return tc;
     }
 
     public int pointCount() {
-        int count = 0;
-        for (int i = 0; i < points.length; i++) {
-            if (points[i] != null) {
-                count += points[i].length;
+        return store.vertexCount();
+    }
+
+    public String memoryReport() {
+        return store.memoryReport();
+    }
+
+    public NodeEngine getNodeEngine() {
+        return nodeEngine;
+    }
+
+    public void setNodeEngine(NodeEngine nodeEngine) {
+        this.nodeEngine = nodeEngine;
+    }
+
+    public SimplificationCache getSimplificationCache() {
+        return simplificationCache;
+    }
+
+    /**
+     * Reuse simplified edges from a cache, and add to it those simplified anew. The cache
+     * must hold results for the identity of the simplifier. Edges simplified together by a
+     * BatchSimplifier do not use the cache, see SimplificationCache.
+     *
+     * @param simplificationCache The cache, or null to simplify every edge
+     */
+    public void setSimplificationCache(SimplificationCache simplificationCache) {
+        if (simplificationCache != null && !simplificationCache.getIdentity().equals(simplifier.getIdentity())) {
+            throw new IllegalArgumentException("Cache for " + simplificationCache.getIdentity()
+                    + " does not match simplifier " + simplifier.getIdentity());
+        }
+        this.simplificationCache = simplificationCache;
+    }
+
+    /**
+     * Put a table in a layer with its own node set. By default every table is in layer 0, so
+     * a node of any table splits the edges of all of them. Tables in separate layers, such as
+     * nested statistical areas, only split each other's edges at their own nodes, so each
+     * layer is reassembled from the fewest and longest edges that describe it. Edges of
+     * different layers that coincide are still the same edge, and are simplified once.
+     * <br>Layers must be set before findNodes(). The node engine is not used once any table
+     * has a layer, nodes being found from the ring membership of each layer in turn. An edge
+     * that runs along shorter edges of other layers is not simplified itself but made of
+     * their simplified coordinates, so the simplified layers nest wherever their edges
+     * coincide and a TopologySafeSimplifier keeps every layer from crossing any other.
+     */
+    public void setLayer(Table table, int layer) {
+        if (layer < 0) {
+            throw new IllegalArgumentException("Negative layer " + layer + " for table " + table);
+        }
+        if (layers == null) {
+            layers = new HashMap<>();
+        }
+        layers.put(table, layer);
+    }
+
+    public int getLayer(Table table) {
+        Integer layer = layers == null ? null : layers.get(table);
+        return layer == null ? 0 : layer;
+    }
+
+    /**
+     * @return True if a layer has been set for any table
+     */
+    public boolean hasLayers() {
+        return layers != null;
+    }
+
+    /**
+     * @return One empty node set for each layer
+     */
+    private BitSet[] newLayerNodes() {
+        int count = 1;
+        for (int layer: layers.values()) {
+            count = Math.max(count, layer + 1);
+        }
+        BitSet[] nodes = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new BitSet();
+        }
+        return nodes;
+    }
+
+    /**
+     * @return The layer of the row of each ring, 0 for a ring added without a row
+     */
+    private int[] ringLayers() {
+        int[] ringLayers = new int[store.ringCount()];
+        for (int ring = 0; ring < ringRows.size(); ring++) {
+            Row row = ringRows.get(ring);
+            if (row != null) {
+                ringLayers[ring] = getLayer(row.table);
             }
         }
-        return count;
+        return ringLayers;
+    }
+
+    /**
+     * @return The node set of the layer of the row, or null if nodes are not layered
+     */
+    private BitSet layerNodes(Row row) {
+        return layerNodes == null ? null : layerNodes[getLayer(row.table)];
+    }
+
+    /**
+     * @param nodes The node set of a layer, or null for the node set of the store
+     */
+    private boolean isNode(BitSet nodes, int vertex) {
+        return nodes == null ? store.isNode(vertex) : nodes.get(vertex);
     }
 
     public void findNodes() {
+        checkNotCompacted();
+        long start = phaseStarted(TopoListener.Phase.FIND_NODES);
+        if (layers != null) {
+            store.buildMembership();
+            int[] ringLayers = ringLayers();
+            layerNodes = newLayerNodes();
+            for (Table table: tableMap.keySet()) {
+                int layer = getLayer(table);
+                for (Row row: tableMap.get(table)) {
+                    findNodes(row, layerNodes[layer], ringLayers, layer);
+                }
+            }
+            for (BitSet nodes: layerNodes) {
+                store.addNodes(nodes);
+            }
+            phaseCompleted(TopoListener.Phase.FIND_NODES, start, null);
+            return;
+        }
+        if (nodeEngine == NodeEngine.SORT && store.buildMembershipSorted(false)) {
+            BitSet nodes = new BitSet();
+            store.testRecordedNodes(0, store.pairCount(), nodes);
+            store.addNodes(nodes);
+            store.releasePairs();
+            phaseCompleted(TopoListener.Phase.FIND_NODES, start, null);
+            return;
+        }
+        store.buildMembership();
         for (Table table: tableMap.keySet()) {
             for (Row row: tableMap.get(table)) {
-                MultiPolygon multi = row.mp;
-                for (int i = 0; i < multi.getNumGeometries(); i++) {
-                    Polygon poly = (Polygon)multi.getGeometryN(i);
-                    findNodesInLineString(poly.getExteriorRing());
-                    for (int j = 0; j < poly.getNumInteriorRing(); j++) {
-                        findNodesInLineString(poly.getInteriorRingN(j));
-                    }
+                findNodes(row, null, null, 0);
+            }
+        }
+        phaseCompleted(TopoListener.Phase.FIND_NODES, start, null);
+    }
+
+    /**
+     * Find nodes with the rows split between tasks run by the executor. Each task collects
+     * nodes in its own set and the sets are merged once all tasks are complete. The SORT
+     * engine splits the recorded pairs between tasks rather than the rows.
+     */
+    public void findNodes(ExecutorService executor) throws Exception {
+        checkNotCompacted();
+        long phaseStart = phaseStarted(TopoListener.Phase.FIND_NODES);
+        final List<BitSet> found = new ArrayList<>();
+        if (layers != null) {
+            store.buildMembership();
+            final int[] ringLayers = ringLayers();
+            final List<Row> rows = rows();
+            final List<BitSet[]> foundLayers = new ArrayList<>();
+            run(executor, rows.size(), (start, end) -> {
+                BitSet[] nodes = newLayerNodes();
+                for (int r = start; r < end; r++) {
+                    Row row = rows.get(r);
+                    int layer = getLayer(row.table);
+                    findNodes(row, nodes[layer], ringLayers, layer);
+                }
+                synchronized (foundLayers) {
+                    foundLayers.add(nodes);
+                }
+            });
+            layerNodes = newLayerNodes();
+            for (BitSet[] nodes: foundLayers) {
+                for (int layer = 0; layer < layerNodes.length; layer++) {
+                    layerNodes[layer].or(nodes[layer]);
+                }
+            }
+            for (BitSet nodes: layerNodes) {
+                store.addNodes(nodes);
+            }
+            phaseCompleted(TopoListener.Phase.FIND_NODES, phaseStart, null);
+            return;
+        }
+        if (nodeEngine == NodeEngine.SORT && store.buildMembershipSorted(true)) {
+            run(executor, store.pairCount(), (start, end) -> {
+                BitSet nodes = new BitSet();
+                store.testRecordedNodes(start, end, nodes);
+                synchronized (found) {
+                    found.add(nodes);
                 }
+            });
+            for (BitSet nodes: found) {
+                store.addNodes(nodes);
             }
+            store.releasePairs();
+            phaseCompleted(TopoListener.Phase.FIND_NODES, phaseStart, null);
+            return;
         }
+        store.buildMembership();
+        final List<Row> rows = rows();
+        run(executor, rows.size(), (start, end) -> {
+            BitSet nodes = new BitSet();
+            for (int r = start; r < end; r++) {
+                findNodes(rows.get(r), nodes, null, 0);
+            }
+            synchronized (found) {
+                found.add(nodes);
+            }
+        });
+        for (BitSet nodes: found) {
+            store.addNodes(nodes);
+        }
+        phaseCompleted(TopoListener.Phase.FIND_NODES, phaseStart, null);
+    }
 
+    /**
+     * @param found The set receiving nodes, or null for the node set of the store
+     * @param ringLayers The layer of each ring if only the rings of the layer given are
+     *                   counted, otherwise null
+     */
+    private void findNodes(Row row, BitSet found, int[] ringLayers, int layer) {
+        MultiPolygon multi = row.mp;
+        for (int i = 0; i < multi.getNumGeometries(); i++) {
+            Polygon poly = (Polygon)multi.getGeometryN(i);
+            findNodesInLineString(poly.getExteriorRing(), found, ringLayers, layer);
+            for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                findNodesInLineString(poly.getInteriorRingN(j), found, ringLayers, layer);
+            }
+        }
     }
 
-    private void findNodesInLineString(LineString ls) {
+    private void findNodesInLineString(LineString ls, BitSet found, int[] ringLayers, int layer) {
         CoordinateSequence seq = ls.getCoordinateSequence();
-        TopoCoord last = null;
+        CoordIndex index = store.getIndex();
+        int[] vertexIds = loadedVertexIds(seq);
+        int last = -1;
         for (int k = 0; k < seq.size(); k++) {
-            Coordinate coord = seq.getCoordinate(k);
-            TopoCoord tc = getTopoCoord(coord);
-            if (last != null) {
-                last.testNode(tc);
+            int vertex = vertexIds != null ? vertexIds[k] : index.get(seq.getY(k), seq.getX(k));
+            if (last >= 0) {
+                if (found == null) {
+                    store.testNode(last, vertex);
+                } else if (ringLayers == null) {
+                    store.testNode(last, vertex, found);
+                } else {
+                    store.testNode(last, vertex, found, ringLayers, layer);
+                }
             }
-            last = tc;
+            last = vertex;
         }
 
     }
@@ -191,86 +605,202 @@ public class TopoCoordData implements Serializable {
     }
 
     public void createEdges() throws Exception {
+        checkNotCompacted();
+        long start = phaseStarted(TopoListener.Phase.CREATE_EDGES);
         for (Table table: tableMap.keySet()) {
             for (Row row : tableMap.get(table)) {
-                MultiPolygon multi = row.mp;
-                row.topoPolyList = new ArrayList();
-                for (int i = 0; i < multi.getNumGeometries(); i++) {
-                    Polygon poly = (Polygon) multi.getGeometryN(i);
-                    TopoPoly tp = new TopoPoly();
-                    tp.exterior = new ArrayList();
-                    if (createEdges((LinearRing)poly.getExteriorRing(), factory, tp.exterior, false)) {
-                        for (int j = 0; j < poly.getNumInteriorRing(); j++) {
-                            List<RingEdge> interior = new ArrayList();
-                            tp.interiorList.add(interior);
-                            createEdges((LinearRing)poly.getInteriorRingN(j), factory, interior, true);
-                        }
-                        row.topoPolyList.add(tp);
-                    }
+                createEdges(row, true);
+            }
+        }
+        phaseCompleted(TopoListener.Phase.CREATE_EDGES, start, null);
+    }
+
+    /**
+     * Create edges for some rows only, in the order given.
+     */
+    void createEdges(Collection<Row> rows) throws Exception {
+        for (Row row : rows) {
+            createEdges(row, true);
+        }
+    }
+
+    /**
+     * Create edges with the rows split between tasks run by the executor. The resulting
+     * edges, ring edges and edgeMap content are identical to those of createEdges().
+     * <br>Rows are processed in three passes. Edges are extracted from each row without
+     * consulting edgeMap, except that rows containing an island ring are deferred and
+     * extracted afterwards on the calling thread in row order, as constructing a node for
+     * an island changes how identical rings in later rows are split. Each extracted edge
+     * is then registered with its row position so that equal edges resolve to the instance
+     * the serial pass would have found first, and finally every ring edge is pointed at
+     * that instance.
+     */
+    public void createEdges(ExecutorService executor) throws Exception {
+        checkNotCompacted();
+        long phaseStart = phaseStarted(TopoListener.Phase.CREATE_EDGES);
+        final List<Row> rows = rows();
+        for (int node = store.nextNode(0); node >= 0; node = store.nextNode(node + 1)) {
+            getNode(node); // created up front so that tasks only read nodeCoords
+        }
+        final boolean[] deferred = new boolean[rows.size()];
+        run(executor, rows.size(), (start, end) -> {
+            for (int r = start; r < end; r++) {
+                Row row = rows.get(r);
+                if (hasIslandRing(row)) {
+                    deferred[r] = true;
+                } else {
+                    createEdges(row, false);
                 }
-                if (row.topoPolyList.size() == 0) { // All islands, find the largest polygon
-                    Polygon max = null;
-                    double maxArea = 0.0;
-                    for (int i = 0; i < multi.getNumGeometries(); i++) {
-                        Polygon p = (Polygon)multi.getGeometryN(i);
-                        double area = p.getArea();
-                        if (area > maxArea) {
-                            max = p;
-                            maxArea = area;
-                        }
-                    }
-                    TopoPoly tp = new TopoPoly();
-                    tp.exterior = new ArrayList();
-                    createEdges((LinearRing)max.getExteriorRing(), factory, tp.exterior, true);
-                    for (int j = 0; j < max.getNumInteriorRing(); j++) {
-                        List<RingEdge> interior = new ArrayList();
-                        tp.interiorList.add(interior);
-                        createEdges((LinearRing)max.getInteriorRingN(j), factory, interior, true);
-                    }
-                    row.topoPolyList.add(tp);
+            }
+        });
+        for (int r = 0; r < rows.size(); r++) {
+            if (deferred[r]) {
+                createEdges(rows.get(r), false);
+            }
+        }
+        final EdgeRegistry registry = new EdgeRegistry();
+        run(executor, rows.size(), (start, end) -> {
+            for (int r = start; r < end; r++) {
+                long order = (long)r << 32;
+                for (RingEdge ringEdge: ringEdges(rows.get(r))) {
+                    ringEdge.edge.order = order++;
+                    registry.register(ringEdge.edge);
+                }
+            }
+        });
+        run(executor, rows.size(), (start, end) -> {
+            for (int r = start; r < end; r++) {
+                for (RingEdge ringEdge: ringEdges(rows.get(r))) {
+                    Edge mapEdge = registry.get(ringEdge.edge);
+                    ringEdge.forward = mapEdge.isForward(ringEdge.edge);
+                    ringEdge.edge = mapEdge;
                 }
             }
+        });
+        for (Edge edge: registry.edges()) {
+            edgeMap.put(edge, edge);
         }
+        phaseCompleted(TopoListener.Phase.CREATE_EDGES, phaseStart, null);
     }
 
-    private boolean createEdges(LinearRing ring, GeometryFactory fac, List<RingEdge> edgeList,
-                                boolean constructNodeIfNeeded) throws Exception {
-        TopoCoord node1 = null;
+    /**
+     * @param useEdgeMap If true each edge is resolved against edgeMap as it is created,
+     *                   otherwise ring edges refer to the newly created edges in ring order
+     */
+    private void createEdges(Row row, boolean useEdgeMap) throws Exception {
+        MultiPolygon multi = row.mp;
+        BitSet nodes = layerNodes(row);
+        row.topoPolyList = new ArrayList();
+        for (int i = 0; i < multi.getNumGeometries(); i++) {
+            Polygon poly = (Polygon) multi.getGeometryN(i);
+            TopoPoly tp = new TopoPoly();
+            tp.exterior = new ArrayList();
+            if (createEdges((LinearRing)poly.getExteriorRing(), useEdgeMap, tp.exterior, false, nodes)) {
+                for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                    List<RingEdge> interior = new ArrayList();
+                    tp.interiorList.add(interior);
+                    createEdges((LinearRing)poly.getInteriorRingN(j), useEdgeMap, interior, true, nodes);
+                }
+                row.topoPolyList.add(tp);
+            }
+        }
+        if (row.topoPolyList.size() == 0) { // All islands, find the largest polygon
+            Polygon max = null;
+            double maxArea = 0.0;
+            for (int i = 0; i < multi.getNumGeometries(); i++) {
+                Polygon p = (Polygon)multi.getGeometryN(i);
+                double area = p.getArea();
+                if (area > maxArea) {
+                    max = p;
+                    maxArea = area;
+                }
+            }
+            TopoPoly tp = new TopoPoly();
+            tp.exterior = new ArrayList();
+            createEdges((LinearRing)max.getExteriorRing(), useEdgeMap, tp.exterior, true, nodes);
+            for (int j = 0; j < max.getNumInteriorRing(); j++) {
+                List<RingEdge> interior = new ArrayList();
+                tp.interiorList.add(interior);
+                createEdges((LinearRing)max.getInteriorRingN(j), useEdgeMap, interior, true, nodes);
+            }
+            row.topoPolyList.add(tp);
+        }
+    }
+
+    private boolean hasIslandRing(Row row) {
+        MultiPolygon multi = row.mp;
+        BitSet nodes = layerNodes(row);
+        for (int i = 0; i < multi.getNumGeometries(); i++) {
+            Polygon poly = (Polygon)multi.getGeometryN(i);
+            if (isIsland(poly.getExteriorRing(), nodes)) {
+                return true;
+            }
+            for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                if (isIsland(poly.getInteriorRingN(j), nodes)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isIsland(LineString ls, BitSet nodes) {
+        CoordinateSequence seq = ls.getCoordinateSequence();
+        CoordIndex index = store.getIndex();
+        int[] vertexIds = loadedVertexIds(seq);
+        for (int k = 0; k < seq.size(); k++) {
+            if (isNode(nodes, vertexIds != null ? vertexIds[k] : index.get(seq.getY(k), seq.getX(k)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param nodes The node set of the layer of the ring, or null for the node set of the store
+     */
+    private boolean createEdges(LinearRing ring, boolean useEdgeMap, List<RingEdge> edgeList,
+                                boolean constructNodeIfNeeded, BitSet nodes) throws Exception {
+        int node1 = -1;
         List<Coordinate> coords = new ArrayList();
         int orphanCoords = 0;
         CoordinateSequence seq = ring.getCoordinateSequence();
+        int[] vertexIds = loadedVertexIds(seq);
         for (int i = 0; i < seq.size(); i++) {
             Coordinate coord = seq.getCoordinate(i);
-            TopoCoord tc = getTopoCoord(coord);
-            if (node1 == null) {
-                if (tc.node) {
-                    node1 = tc;
+            int vertex = vertexIds != null ? vertexIds[i] : store.vertexId(coord);
+            if (node1 < 0) {
+                if (isNode(nodes, vertex)) {
+                    node1 = vertex;
                     coords.add(coord);
                 } else {
                     orphanCoords++;
                 }
             } else {
                 coords.add(coord);
-                if (tc.node) {
-                    Edge polyEdge = new Edge(node1, tc, coords.toArray(new Coordinate[coords.size()]));
-                    Edge mapEdge = edgeMap.get(polyEdge);
-                    if (mapEdge == null) {
-                        mapEdge = polyEdge;
-                        edgeMap.put(polyEdge, polyEdge);
-                    }
-                    edgeList.add(new RingEdge(mapEdge, mapEdge.isForward(polyEdge)));
-                    node1 = tc;
+                if (isNode(nodes, vertex)) {
+                    addEdge(node1, vertex, coords, useEdgeMap, edgeList);
+                    node1 = vertex;
                     coords = new ArrayList();
                     coords.add(coord);
                 }
             }
         }
-        if (node1 == null) { // The LineString is an island
+        if (node1 < 0) { // The LineString is an island
             if (constructNodeIfNeeded) {
-                node1 = getTopoCoord(seq.getCoordinate(0));
-                node1.node = true;
-                Edge edge = new Edge(node1, node1, seq.toCoordinateArray());
-                edgeMap.put(edge, edge);
+                Coordinate[] islandCoords = canonicalIslandNodes ? startAtLowest(seq) : seq.toCoordinateArray();
+                node1 = store.vertexId(islandCoords[0]);
+                store.setNode(node1);
+                if (nodes != null) {
+                    nodes.set(node1);
+                }
+                Edge edge = new Edge(getNode(node1), getNode(node1), islandCoords);
+                if (useEdgeMap) {
+                    edgeMap.put(edge, edge);
+                    if (newEdges != null) {
+                        newEdges.add(edge);
+                    }
+                }
                 edgeList.add(new RingEdge(edge, true));
                 return true;
             } else {
@@ -281,16 +811,10 @@ public class TopoCoordData implements Serializable {
         if (orphanCoords > 0) {
             for (int i = 0; i < seq.size(); i++) {
                 Coordinate coord = seq.getCoordinate(i);
-                TopoCoord tc = getTopoCoord(coord);
+                int vertex = vertexIds != null ? vertexIds[i] : store.vertexId(coord);
                 coords.add(coord);
-                if (tc.node) {
-                    Edge polyEdge = new Edge(node1, tc, coords.toArray(new Coordinate[coords.size()]));
-                    Edge mapEdge = edgeMap.get(polyEdge);
-                    if (mapEdge == null) {
-                        mapEdge = polyEdge;
-                        edgeMap.put(polyEdge, polyEdge);
-                    }
-                    edgeList.add(new RingEdge(mapEdge, mapEdge.isForward(polyEdge)));
+                if (isNode(nodes, vertex)) {
+                    addEdge(node1, vertex, coords, useEdgeMap, edgeList);
                     break;
                 }
             }
@@ -298,40 +822,532 @@ public class TopoCoordData implements Serializable {
         return true;
     }
 
+    /**
+     * @return The coordinates of a closed ring rotated to start at its lowest coordinate
+     */
+    private static Coordinate[] startAtLowest(CoordinateSequence seq) {
+        Coordinate[] ring = seq.toCoordinateArray();
+        int n = ring.length - 1;
+        int lowest = 0;
+        for (int i = 1; i < n; i++) {
+            if (ring[i].compareTo(ring[lowest]) < 0) {
+                lowest = i;
+            }
+        }
+        Coordinate[] result = new Coordinate[ring.length];
+        for (int i = 0; i < n; i++) {
+            result[i] = ring[(lowest + i) % n];
+        }
+        result[n] = result[0];
+        return result;
+    }
+
+    private void addEdge(int node1, int node2, List<Coordinate> coords, boolean useEdgeMap, List<RingEdge> edgeList) {
+        Edge polyEdge = new Edge(getNode(node1), getNode(node2), coords.toArray(new Coordinate[coords.size()]));
+        if (!useEdgeMap) {
+            edgeList.add(new RingEdge(polyEdge, true));
+            return;
+        }
+        Edge mapEdge = edgeMap.get(polyEdge);
+        if (mapEdge == null) {
+            mapEdge = polyEdge;
+            edgeMap.put(polyEdge, polyEdge);
+            if (newEdges != null) {
+                newEdges.add(polyEdge);
+            }
+        }
+        edgeList.add(new RingEdge(mapEdge, mapEdge.isForward(polyEdge)));
+    }
+
+    /**
+     * Release what is only needed to create edges, lowering the heap high water mark of the
+     * phases that follow. The source geometry of each row, the coordinate store and the ring
+     * to row table are dropped, and the source coordinates of each edge are packed into a
+     * double array, with the edges ending at a node sharing a single Coordinate for it.
+     * <br>Simplification, thinning, reassembly and output give the same results as without
+     * compaction, though the source coordinates of an edge are rebuilt each time they are used.
+     * Rows no longer hold a geometry until their thinned polygons are created. The topology
+     * can no longer be extended or updated, so addRow(), findNodes(), createEdges() and
+     * updateRows() throw IllegalStateException, and phase statistics report no vertices or nodes.
+     */
+    public void compact() {
+        for (Row row: rows()) {
+            if (row.topoPolyList == null) {
+                throw new IllegalStateException("Edges have not been created for row " + row.code);
+            }
+        }
+        Map<Coordinate, Coordinate> nodeCoordinates = new HashMap<>();
+        for (Edge edge: edgeMap.values()) {
+            edge.compact(nodeCoordinates);
+        }
+        for (List<Row> rows: tableMap.values()) {
+            for (Row row: rows) {
+                row.mp = null;
+                row.ringIds = null;
+            }
+        }
+        store = new TopoStore(factory.getPrecisionModel());
+        nodeCoords = null;
+        layerNodes = null;
+        ringRows = new ArrayList<>();
+        compacted = true;
+    }
+
+    /**
+     * Mark a topology read without its vertices, see TopoSnapshot, as compacted.
+     */
+    void setCompacted() {
+        compacted = true;
+    }
+
+    private void checkNotCompacted() {
+        if (compacted) {
+            throw new IllegalStateException("Topology has no vertices, having been compacted or read from a snapshot");
+        }
+    }
+
+    /**
+     * Node TopoCoords are shared by all edges ending at the node.
+     */
+    private TopoCoord getNode(int vertex) {
+        if (nodeCoords == null || nodeCoords.length < store.vertexCount()) {
+            nodeCoords = nodeCoords == null ? new TopoCoord[store.vertexCount()] : Arrays.copyOf(nodeCoords, store.vertexCount());
+        }
+        TopoCoord tc = nodeCoords[vertex];
+        if (tc == null) {
+            tc = new TopoCoord();
+            tc.lat = store.lat(vertex);
+            tc.lon = store.lon(vertex);
+            tc.node = true;
+            nodeCoords[vertex] = tc;
+        }
+        return tc;
+    }
+
+    /**
+     * A simplifier that is also a BatchSimplifier is given all edges at once. With layers, an
+     * edge along edges of other layers is built from theirs, see Composition.
+     */
     public void simplifyEdges() {
+        long start = phaseStarted(TopoListener.Phase.SIMPLIFY_EDGES);
+        Composition composition = new Composition(edgeMap.values());
+        if (simplifier instanceof BatchSimplifier) {
+            ((BatchSimplifier)simplifier).simplify(composition.simple);
+        } else {
+            for (Edge edge: composition.simple) {
+                simplifyEdge(edge);
+            }
+        }
+        composition.compose();
+        phaseCompleted(TopoListener.Phase.SIMPLIFY_EDGES, start, null);
+    }
+
+    /**
+     * Simplify edges with the edges split between tasks run by the executor. The simplifier
+     * must be safe for concurrent use, as DefaultSimplifier is. A BatchSimplifier is given all
+     * edges at once on the calling thread.
+     */
+    public void simplifyEdges(ExecutorService executor) throws Exception {
+        long phaseStart = phaseStarted(TopoListener.Phase.SIMPLIFY_EDGES);
+        Composition composition = new Composition(edgeMap.values());
+        final List<Edge> edges = composition.simple;
+        if (simplifier instanceof BatchSimplifier) {
+            ((BatchSimplifier)simplifier).simplify(edges);
+        } else {
+            run(executor, edges.size(), (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    simplifyEdge(edges.get(i));
+                }
+            });
+        }
+        composition.compose();
+        phaseCompleted(TopoListener.Phase.SIMPLIFY_EDGES, phaseStart, null);
+    }
+
+    /**
+     * The edges to simplify, or thin, and the composite edges built from their results.
+     * Without layers every edge is simple. With layers, an edge of one layer may run along
+     * shorter edges of other layers, passing through the ends of other edges between its own
+     * nodes. Such a composite edge is split there into pieces, each of which is an edge of
+     * another layer or, if there is none, is simplified as a piece. The composite edge is then
+     * the pieces joined, so layers share their simplified vertices wherever their edges
+     * coincide. The ends of edges are taken from the edges themselves, so a compacted
+     * topology is split the same way.
+     */
+    private class Composition {
+        final List<Edge> simple = new ArrayList<>();
+        private final Map<Edge, List<RingEdge>> composites = new LinkedHashMap<>();
+
+        Composition(Collection<Edge> edges) {
+            if (layers == null) {
+                simple.addAll(edges);
+                return;
+            }
+            Map<Coordinate, TopoCoord> ends = new HashMap<>();
+            for (Edge edge: edgeMap.values()) {
+                Coordinate[] coords = edge.getSourceCoordArray();
+                ends.put(coords[0], edge.getNode1());
+                ends.put(coords[coords.length - 1], edge.getNode2());
+            }
+            Map<Edge, Edge> pieces = new EdgeMap();
+            for (Edge edge: edges) {
+                Coordinate[] coords = edge.getSourceCoordArray();
+                List<RingEdge> parts = null;
+                int start = 0;
+                for (int i = 1; i < coords.length - 1; i++) {
+                    if (ends.containsKey(coords[i])) {
+                        if (parts == null) {
+                            parts = new ArrayList<>();
+                        }
+                        parts.add(part(coords, start, i, ends, pieces));
+                        start = i;
+                    }
+                }
+                if (parts == null) {
+                    simple.add(edge);
+                } else {
+                    parts.add(part(coords, start, coords.length - 1, ends, pieces));
+                    composites.put(edge, parts);
+                }
+            }
+        }
+
+        /**
+         * @return The edge of another layer equal to the piece of coords from start to end, or
+         * the piece itself, to be simplified, if there is none
+         */
+        private RingEdge part(Coordinate[] coords, int start, int end, Map<Coordinate, TopoCoord> ends,
+                              Map<Edge, Edge> pieces) {
+            Edge piece = new Edge(ends.get(coords[start]), ends.get(coords[end]), Arrays.copyOfRange(coords, start, end + 1));
+            Edge part = edgeMap.get(piece);
+            if (part == null) {
+                part = pieces.get(piece);
+                if (part == null) {
+                    pieces.put(piece, piece);
+                    simple.add(piece);
+                    part = piece;
+                }
+            }
+            return new RingEdge(part, part.isForward(piece));
+        }
+
+        /**
+         * Join the pieces of each composite edge once the simple edges are simplified. A loop
+         * that would be left with fewer than four coordinates keeps its source coordinates.
+         */
+        void compose() {
+            for (Map.Entry<Edge, List<RingEdge>> entry: composites.entrySet()) {
+                List<Coordinate> coords = new ArrayList<>();
+                for (RingEdge part: entry.getValue()) {
+                    Coordinate[] c = part.edge.getCoordArray();
+                    for (int i = coords.isEmpty() ? 0 : 1; i < c.length; i++) {
+                        coords.add(c[part.forward ? i : c.length - 1 - i]);
+                    }
+                }
+                Edge edge = entry.getKey();
+                if (coords.size() < 4 && edge.getNode1().equals(edge.getNode2())) {
+                    edge.setCoordArray(edge.getSourceCoordArray());
+                } else {
+                    edge.setCoordArray(coords.toArray(new Coordinate[coords.size()]));
+                }
+            }
+        }
+    }
+
+    /**
+     * An edge found in the simplification cache is not simplified again.
+     */
+    void simplifyEdge(Edge edge) {
+        SimplificationCache cache = simplificationCache;
+        if (cache == null) {
+            simplifyUncached(edge);
+            return;
+        }
+        Coordinate[] coords = edge.getCoordArray();
+        Coordinate[] simple = cache.get(coords);
+        if (simple != null) {
+            edge.setCoordArray(simple);
+            return;
+        }
+        simplifyUncached(edge);
+        cache.put(coords, edge.getCoordArray());
+    }
+
+    /**
+     * An ArraySimplifier is given the edge coordinates directly, with an index buffer reused
+     * by each thread, so only the simplified coordinate array is allocated.
+     */
+    private void simplifyUncached(Edge edge) {
+        if (simplifier instanceof ArraySimplifier) {
+            Coordinate[] coords = edge.getCoordArray();
+            int[] kept = KEPT.get();
+            if (kept.length < coords.length) {
+                kept = new int[coords.length * 2];
+                KEPT.set(kept);
+            }
+            int count = ((ArraySimplifier)simplifier).simplify(coords, kept);
+            Coordinate[] simple = new Coordinate[count];
+            for (int i = 0; i < count; i++) {
+                simple[i] = coords[kept[i]];
+            }
+            edge.setCoordArray(simple);
+            return;
+        }
+        LineString ls = factory.createLineString(edge.getCoordArray());
+        LineString simple = simplifier.simplify(ls);
+        edge.setCoordArray(simple.getCoordinates());
+    }
+
+    /**
+     * Compute the vertex significance of every edge from its source coordinates. Once done,
+     * thinEdges() followed by createThinnedPolygons() produces polygons for any tolerance
+     * without simplifying again, so several levels of detail cost one topology build.
+     */
+    public void computeSignificance() {
         for (Edge edge: edgeMap.values()) {
-            LineString ls = factory.createLineString(edge.getCoordArray());
-            LineString simple = simplifier.simplify(ls);
-            edge.setCoordArray(simple.getCoordinates());
+            edge.setSignificance(VertexSignificance.douglasPeucker(edge.getSourceCoordArray()));
         }
+    }
 
+    public void computeSignificance(ExecutorService executor) throws Exception {
+        final List<Edge> edges = new ArrayList<>(edgeMap.values());
+        run(executor, edges.size(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                Edge edge = edges.get(i);
+                edge.setSignificance(VertexSignificance.douglasPeucker(edge.getSourceCoordArray()));
+            }
+        });
     }
 
-    public void createThinnedPolygons() throws Exception {
-        for (Table table: tableMap.keySet()) {
-            for (Row row : tableMap.get(table)) {
-                List<Polygon> polyList = new ArrayList();
+    /**
+     * Thin every edge to a distance tolerance by keeping the source vertices whose significance
+     * exceeds it. Significance is computed first for any edge that does not have it yet.
+     */
+    public void thinEdges(double tolerance) {
+        thinEdges(Double.POSITIVE_INFINITY, tolerance);
+    }
+
+    /**
+     * Thin every edge with a tolerance dependant on the edge length, in the manner of
+     * DefaultSimplifier: the tolerance is the source length times the length factor,
+     * limited to the maximum distance tolerance.
+     * <br>A ring of two edges thinned to their nodes would collapse, so each edge of a ring
+     * left with fewer than four coordinates keeps its most significant interior vertex.
+     */
+    public void thinEdges(double lengthFactor, double maxDistanceTolerance) {
+        Composition composition = new Composition(edgeMap.values());
+        for (Edge edge: composition.simple) {
+            Coordinate[] source = edge.getSourceCoordArray();
+            if (edge.getSignificance() == null) {
+                edge.setSignificance(VertexSignificance.douglasPeucker(source));
+            }
+            double tolerance = maxDistanceTolerance;
+            if (lengthFactor != Double.POSITIVE_INFINITY) {
+                double length = 0.0;
+                for (int i = 1; i < source.length; i++) {
+                    length += source[i - 1].distance(source[i]);
+                }
+                tolerance = Math.min(length * lengthFactor, maxDistanceTolerance);
+            }
+            edge.setCoordArray(VertexSignificance.filter(source, edge.getSignificance(), tolerance));
+        }
+        composition.compose();
+        if (keepRingVertices()) {
+            composition.compose();
+        }
+    }
+
+    /**
+     * Give each edge of a ring with fewer than four coordinates its most significant interior
+     * vertex, if it has been thinned to its nodes. Only thinned edges are changed, as the
+     * edges built by Composition always keep an interior vertex.
+     *
+     * @return True if any edge was changed
+     */
+    private boolean keepRingVertices() {
+        boolean changed = false;
+        for (List<Row> rows: tableMap.values()) {
+            for (Row row: rows) {
                 for (TopoPoly poly: row.topoPolyList) {
-                    LinearRing exterior = createLinearRing(poly.exterior);
-                    List<LinearRing> interior = new ArrayList();
-                    for (List<RingEdge> intEdges: poly.interiorList) {
-                        interior.add(createLinearRing(intEdges));
+                    changed |= keepRingVertices(poly.exterior);
+                    for (List<RingEdge> interior: poly.interiorList) {
+                        changed |= keepRingVertices(interior);
                     }
-                    if (interior.size() == 0)  {
-                        polyList.add(factory.createPolygon(exterior));
-                    } else {
-                        polyList.add(factory.createPolygon(exterior, interior.toArray(new LinearRing[interior.size()])));
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean keepRingVertices(List<RingEdge> ring) {
+        int count = 1;
+        for (RingEdge ringEdge: ring) {
+            count += ringEdge.edge.getCoordArray().length - 1;
+        }
+        if (count >= 4) {
+            return false;
+        }
+        boolean changed = false;
+        for (RingEdge ringEdge: ring) {
+            Edge edge = ringEdge.edge;
+            Coordinate[] source = edge.getSourceCoordArray();
+            double[] significance = edge.getSignificance();
+            if (edge.getCoordArray().length == 2 && source.length > 2 && significance != null) {
+                int max = 1;
+                for (int i = 2; i < source.length - 1; i++) {
+                    if (significance[i] > significance[max]) {
+                        max = i;
                     }
                 }
-                row.mp = factory.createMultiPolygon(polyList.toArray(new Polygon[polyList.size()]));
+                edge.setCoordArray(new Coordinate[] {source[0], source[max], source[source.length - 1]});
+                changed = true;
             }
         }
+        return changed;
     }
 
-    private LinearRing createLinearRing(List<RingEdge> edgeList) throws Exception {
+    /**
+     * Create thinned polygons for every row in table order. A row that cannot be reassembled
+     * does not stop the others; it keeps its current geometry and is reported in the result.
+     *
+     * @return The exception for each row that could not be reassembled, in row order
+     */
+    public Map<Row, Exception> createThinnedPolygons() throws Exception {
+        long start = phaseStarted(TopoListener.Phase.CREATE_THINNED_POLYGONS);
+        Map<Row, Exception> failures = new LinkedHashMap<>();
+        Map<Table, PhaseStats.TableStats> tableStats = new LinkedHashMap<>();
+        for (Table table: tableMap.keySet()) {
+            long tableStart = System.nanoTime();
+            int tableFailures = 0;
+            for (Row row : tableMap.get(table)) {
+                try {
+                    row.mp = createThinnedPolygon(row);
+                } catch (Exception e) {
+                    failures.put(row, e);
+                    rowFailed(row, e);
+                    tableFailures++;
+                }
+            }
+            tableStats.put(table, thinnedTableStats(table, System.nanoTime() - tableStart, tableFailures));
+        }
+        phaseCompleted(TopoListener.Phase.CREATE_THINNED_POLYGONS, start, tableStats);
+        return failures;
+    }
+
+    /**
+     * Create thinned polygons with the rows split between tasks run by the executor. A row
+     * that cannot be reassembled does not stop the others; it keeps its current geometry
+     * and is reported in the result.
+     *
+     * @return The exception for each row that could not be reassembled, in row order
+     */
+    public Map<Row, Exception> createThinnedPolygons(ExecutorService executor) throws Exception {
+        long phaseStart = phaseStarted(TopoListener.Phase.CREATE_THINNED_POLYGONS);
+        final List<Row> rows = rows();
+        final Exception[] errors = new Exception[rows.size()];
+        final long[] nanos = new long[rows.size()];
+        run(executor, rows.size(), (start, end) -> {
+            for (int r = start; r < end; r++) {
+                Row row = rows.get(r);
+                long rowStart = System.nanoTime();
+                try {
+                    row.mp = createThinnedPolygon(row);
+                } catch (Exception e) {
+                    errors[r] = e;
+                }
+                nanos[r] = System.nanoTime() - rowStart;
+            }
+        });
+        Map<Row, Exception> failures = new LinkedHashMap<>();
+        for (int r = 0; r < errors.length; r++) {
+            if (errors[r] != null) {
+                failures.put(rows.get(r), errors[r]);
+                rowFailed(rows.get(r), errors[r]);
+            }
+        }
+        // task time summed by table, which exceeds the wall time when tasks run in parallel
+        Map<Table, PhaseStats.TableStats> tableStats = new LinkedHashMap<>();
+        int r = 0;
+        for (Table table: tableMap.keySet()) {
+            long tableNanos = 0;
+            int tableFailures = 0;
+            for (int i = 0; i < tableMap.get(table).size(); i++, r++) {
+                tableNanos += nanos[r];
+                if (errors[r] != null) {
+                    tableFailures++;
+                }
+            }
+            tableStats.put(table, thinnedTableStats(table, tableNanos, tableFailures));
+        }
+        phaseCompleted(TopoListener.Phase.CREATE_THINNED_POLYGONS, phaseStart, tableStats);
+        return failures;
+    }
+
+    /**
+     * Write the thinned geometry of each row as WKB straight from its edges, one row at a time
+     * in table order, without building polygons or setting row.mp. Each row can be saved
+     * by the sink before the next is written.
+     */
+    public void writeThinnedPolygons(ThinnedRowSink sink) throws Exception {
+        long start = phaseStarted(TopoListener.Phase.CREATE_THINNED_POLYGONS);
+        ThinnedWkbWriter writer = new ThinnedWkbWriter();
+        Map<Table, PhaseStats.TableStats> tableStats = new LinkedHashMap<>();
+        for (Table table: tableMap.keySet()) {
+            PhaseStats.TableStats stats = new PhaseStats.TableStats();
+            long tableStart = System.nanoTime();
+            for (Row row : tableMap.get(table)) {
+                try {
+                    sink.save(row, writer.write(row));
+                } catch (Exception e) {
+                    rowFailed(row, e);
+                    throw e;
+                }
+                stats.rows++;
+                stats.vertices += writer.getNumPoints();
+            }
+            stats.nanos = System.nanoTime() - tableStart;
+            tableStats.put(table, stats);
+        }
+        phaseCompleted(TopoListener.Phase.CREATE_THINNED_POLYGONS, start, tableStats);
+    }
+
+    MultiPolygon createThinnedPolygon(Row row) throws Exception {
+        return createPolygon(row, Edge::getCoordArray);
+    }
+
+    /**
+     * Assemble the polygons of a row from the coordinates given for each of its edges.
+     */
+    MultiPolygon createPolygon(Row row, Function<Edge, Coordinate[]> edgeCoordinates) throws Exception {
+        List<Polygon> polyList = new ArrayList();
+        for (TopoPoly poly: row.topoPolyList) {
+            LinearRing exterior = factory.createLinearRing(ringCoordinates(poly.exterior, edgeCoordinates));
+            List<LinearRing> interior = new ArrayList();
+            for (List<RingEdge> intEdges: poly.interiorList) {
+                interior.add(factory.createLinearRing(ringCoordinates(intEdges, edgeCoordinates)));
+            }
+            if (interior.size() == 0)  {
+                polyList.add(factory.createPolygon(exterior));
+            } else {
+                polyList.add(factory.createPolygon(exterior, interior.toArray(new LinearRing[interior.size()])));
+            }
+        }
+        return factory.createMultiPolygon(polyList.toArray(new Polygon[polyList.size()]));
+    }
+
+    /**
+     * @param source If true the source coordinates of the edges are used rather than the
+     *               simplified coordinates
+     */
+    private static Coordinate[] ringCoordinates(List<RingEdge> edgeList, boolean source) throws Exception {
+        return ringCoordinates(edgeList, source ? Edge::getSourceCoordArray : Edge::getCoordArray);
+    }
+
+    private static Coordinate[] ringCoordinates(List<RingEdge> edgeList, Function<Edge, Coordinate[]> edgeCoordinates)
+            throws Exception {
         List<Coordinate> coords = new ArrayList();
         for (RingEdge ringEdge: edgeList) {
-            Coordinate[] ec = ringEdge.edge.getCoordArray();
+            Coordinate[] ec = edgeCoordinates.apply(ringEdge.edge);
             Coordinate coord;
             if (ringEdge.forward) {
                 coord = ec[0];
@@ -353,8 +1369,368 @@ public class TopoCoordData implements Serializable {
                 }
             }
         }
-        LinearRing ring = factory.createLinearRing(coords.toArray(new Coordinate[coords.size()]));
-        return ring;
+        return coords.toArray(new Coordinate[coords.size()]);
+    }
+
+    /**
+     * Update a topology that has been simplified and reassembled by adding and removing rows.
+     * A row is replaced by passing the old row as removed and the new row as added.
+     * <br>Only the vertices whose ring membership changes and their neighbours have their node
+     * status recomputed, only the rows touching those vertices have their edges recreated,
+     * only edges not already in edgeMap are simplified and only the rows touching those
+     * vertices are reassembled. A BatchSimplifier is given the new edges with the others as
+     * fixed edges. Source rings of unchanged rows are recovered from the source coordinates of
+     * their edges; polygons createEdges() dropped as islands are not recovered.
+     *
+     * @return The rows whose thinned geometry has been recreated, in table order. Removed
+     * rows are not included.
+     */
+    public Set<Row> updateRows(Collection<Row> removed, Collection<Row> added) throws Exception {
+        checkNotCompacted();
+        BitSet changed = new BitSet();
+        Set<Edge> oldEdges = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Row row: removed) {
+            tableMap.get(row.table).remove(row);
+            for (int[] ring: vertexRings(row)) {
+                for (int vertex: ring) {
+                    changed.set(vertex);
+                }
+            }
+            for (RingEdge ringEdge: ringEdges(row)) {
+                oldEdges.add(ringEdge.edge);
+            }
+            for (int ring: row.ringIds) {
+                store.removeRing(ring);
+                ringRows.set(ring, null);
+            }
+            row.topoPolyList = null;
+        }
+        for (Row row: added) {
+            addRow(row);
+        }
+        store.buildMembership();
+        for (Row row: added) {
+            for (int[] ring: vertexRings(row)) {
+                for (int vertex: ring) {
+                    changed.set(vertex);
+                }
+            }
+        }
+        // node status depends on the membership of a vertex and its neighbours
+        BitSet affected = (BitSet)changed.clone();
+        for (Row row: rowsTouching(changed)) {
+            for (int[] ring: vertexRings(row)) {
+                for (int k = 1; k < ring.length; k++) {
+                    if (changed.get(ring[k - 1])) {
+                        affected.set(ring[k]);
+                    }
+                    if (changed.get(ring[k])) {
+                        affected.set(ring[k - 1]);
+                    }
+                }
+            }
+        }
+        List<Row> updated = rowsTouching(affected);
+        for (int vertex = affected.nextSetBit(0); vertex >= 0; vertex = affected.nextSetBit(vertex + 1)) {
+            store.clearNode(vertex);
+        }
+        BitSet found = new BitSet();
+        int[] ringLayers = null;
+        BitSet[] foundLayers = null;
+        if (layerNodes != null) {
+            ringLayers = ringLayers();
+            foundLayers = newLayerNodes();
+            if (layerNodes.length < foundLayers.length) {
+                int length = layerNodes.length;
+                layerNodes = Arrays.copyOf(layerNodes, foundLayers.length);
+                for (int layer = length; layer < layerNodes.length; layer++) {
+                    layerNodes[layer] = new BitSet();
+                }
+            }
+            for (BitSet nodes: layerNodes) {
+                nodes.andNot(affected);
+            }
+        }
+        for (Row row: updated) {
+            int layer = getLayer(row.table);
+            for (int[] ring: vertexRings(row)) {
+                for (int k = 1; k < ring.length; k++) {
+                    if (ringLayers == null) {
+                        store.testNode(ring[k - 1], ring[k], found);
+                    } else {
+                        store.testNode(ring[k - 1], ring[k], foundLayers[layer], ringLayers, layer);
+                    }
+                }
+            }
+        }
+        if (foundLayers != null) {
+            for (int layer = 0; layer < foundLayers.length; layer++) {
+                foundLayers[layer].and(affected);
+                layerNodes[layer].or(foundLayers[layer]);
+                found.or(foundLayers[layer]);
+            }
+        }
+        found.and(affected);
+        store.addNodes(found);
+        for (Row row: updated) {
+            if (row.topoPolyList != null) {
+                for (RingEdge ringEdge: ringEdges(row)) {
+                    oldEdges.add(ringEdge.edge);
+                }
+                row.mp = sourceGeometry(row);
+            }
+        }
+        newEdges = new ArrayList<>();
+        try {
+            for (Row row: updated) {
+                createEdges(row, true);
+            }
+            for (Row row: updated) {
+                for (RingEdge ringEdge: ringEdges(row)) {
+                    oldEdges.remove(ringEdge.edge);
+                }
+            }
+            for (Edge edge: oldEdges) {
+                if (edgeMap.get(edge) == edge) {
+                    edgeMap.remove(edge);
+                }
+            }
+            Composition composition = new Composition(newEdges);
+            if (simplifier instanceof BatchSimplifier) {
+                Set<Edge> created = Collections.newSetFromMap(new IdentityHashMap<>());
+                created.addAll(newEdges);
+                List<Edge> fixed = new ArrayList<>();
+                for (Edge edge: edgeMap.values()) {
+                    if (!created.contains(edge)) {
+                        fixed.add(edge);
+                    }
+                }
+                ((BatchSimplifier)simplifier).simplify(composition.simple, fixed);
+            } else {
+                for (Edge edge: composition.simple) {
+                    simplifyEdge(edge);
+                }
+            }
+            composition.compose();
+        } finally {
+            newEdges = null;
+        }
+        for (Row row: updated) {
+            row.mp = createThinnedPolygon(row);
+        }
+        return new LinkedHashSet<>(updated);
+    }
+
+    /**
+     * @return The rows with a ring containing any of the vertices, in table order
+     */
+    private List<Row> rowsTouching(BitSet vertices) {
+        Set<Row> touching = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int vertex = vertices.nextSetBit(0); vertex >= 0; vertex = vertices.nextSetBit(vertex + 1)) {
+            for (int ring: store.getRingIds(vertex)) {
+                Row row = ring < ringRows.size() ? ringRows.get(ring) : null;
+                if (row != null) {
+                    touching.add(row);
+                }
+            }
+        }
+        List<Row> result = new ArrayList<>();
+        for (Row row: rows()) {
+            if (touching.contains(row)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The vertex ids of each source ring of a row, recovered from its edges once
+     * edges have been created
+     */
+    private List<int[]> vertexRings(Row row) throws Exception {
+        List<int[]> result = new ArrayList<>();
+        if (row.topoPolyList == null) {
+            for (LineString ring: sourceRings(row.mp)) {
+                result.add(vertexIds(ring.getCoordinates()));
+            }
+        } else {
+            for (TopoPoly poly: row.topoPolyList) {
+                result.add(vertexIds(ringCoordinates(poly.exterior, true)));
+                for (List<RingEdge> interior: poly.interiorList) {
+                    result.add(vertexIds(ringCoordinates(interior, true)));
+                }
+            }
+        }
+        return result;
+    }
+
+    private int[] vertexIds(Coordinate[] coords) {
+        int[] ids = new int[coords.length];
+        for (int i = 0; i < coords.length; i++) {
+            ids[i] = store.vertexId(coords[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * @return The polygons of a row assembled from the source coordinates of its edges
+     */
+    private MultiPolygon sourceGeometry(Row row) throws Exception {
+        List<Polygon> polys = new ArrayList<>();
+        for (TopoPoly poly: row.topoPolyList) {
+            LinearRing exterior = factory.createLinearRing(ringCoordinates(poly.exterior, true));
+            LinearRing[] interior = new LinearRing[poly.interiorList.size()];
+            for (int j = 0; j < interior.length; j++) {
+                interior[j] = factory.createLinearRing(ringCoordinates(poly.interiorList.get(j), true));
+            }
+            polys.add(factory.createPolygon(exterior, interior));
+        }
+        return factory.createMultiPolygon(polys.toArray(new Polygon[polys.size()]));
+    }
+
+    private static List<LineString> sourceRings(MultiPolygon multi) {
+        List<LineString> rings = new ArrayList<>();
+        for (int i = 0; i < multi.getNumGeometries(); i++) {
+            Polygon poly = (Polygon)multi.getGeometryN(i);
+            rings.add(poly.getExteriorRing());
+            for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+                rings.add(poly.getInteriorRingN(j));
+            }
+        }
+        return rings;
+    }
+
+    /**
+     * @return The phase start time, or 0 if there are no listeners
+     */
+    private long phaseStarted(TopoListener.Phase phase) {
+        if (listeners == null) {
+            return 0L;
+        }
+        for (TopoListener listener: listeners) {
+            listener.phaseStarted(phase);
+        }
+        return System.nanoTime();
+    }
+
+    private void phaseCompleted(TopoListener.Phase phase, long start, Map<Table, PhaseStats.TableStats> tableStats) {
+        if (listeners == null) {
+            return;
+        }
+        PhaseStats stats = new PhaseStats(phase);
+        stats.wallNanos = System.nanoTime() - start;
+        for (List<Row> rows: tableMap.values()) {
+            stats.rows += rows.size();
+        }
+        stats.points = coords;
+        stats.vertices = store.vertexCount();
+        stats.nodes = store.nodeCount();
+        stats.edges = edgeMap.size();
+        if (tableStats != null) {
+            stats.tables.putAll(tableStats);
+            for (PhaseStats.TableStats ts: tableStats.values()) {
+                stats.failures += ts.failures;
+            }
+        }
+        if (phase == TopoListener.Phase.LOAD || phase == TopoListener.Phase.FIND_NODES) {
+            stats.probeLengths = store.getIndex().probeHistogram(PhaseStats.PROBE_BUCKETS);
+        }
+        if (phase == TopoListener.Phase.CREATE_EDGES || phase == TopoListener.Phase.SIMPLIFY_EDGES) {
+            stats.edgeSizes = new long[PhaseStats.SIZE_BUCKETS];
+            if (phase == TopoListener.Phase.SIMPLIFY_EDGES) {
+                stats.reductions = new long[PhaseStats.REDUCTION_BUCKETS];
+            }
+            for (Edge edge: edgeMap.values()) {
+                int size = edge.getSourceCoordArray().length;
+                stats.edgeSizes[Math.min(31 - Integer.numberOfLeadingZeros(size), PhaseStats.SIZE_BUCKETS - 1)]++;
+                if (stats.reductions != null) {
+                    int kept = edge.getCoordArray().length * (PhaseStats.REDUCTION_BUCKETS - 1) / size;
+                    stats.reductions[Math.min(kept, PhaseStats.REDUCTION_BUCKETS - 1)]++;
+                }
+            }
+        }
+        for (TopoListener listener: listeners) {
+            listener.phaseCompleted(stats);
+        }
+    }
+
+    void rowFailed(Row row, Exception e) {
+        if (listeners != null) {
+            for (TopoListener listener: listeners) {
+                listener.rowFailed(row, e);
+            }
+        }
+    }
+
+    private PhaseStats.TableStats thinnedTableStats(Table table, long nanos, int failures) {
+        PhaseStats.TableStats stats = new PhaseStats.TableStats();
+        stats.nanos = nanos;
+        stats.failures = failures;
+        if (listeners != null) {
+            for (Row row: tableMap.get(table)) {
+                stats.rows++;
+                if (row.mp != null) {
+                    stats.vertices += row.mp.getNumPoints();
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return The rows of all tables in table iteration order
+     */
+    private List<Row> rows() {
+        List<Row> rows = new ArrayList<>();
+        for (Table table: tableMap.keySet()) {
+            rows.addAll(tableMap.get(table));
+        }
+        return rows;
+    }
+
+    /**
+     * @return The ring edges of a row in the order they were created
+     */
+    private static List<RingEdge> ringEdges(Row row) {
+        List<RingEdge> ringEdges = new ArrayList<>();
+        for (TopoPoly poly: row.topoPolyList) {
+            ringEdges.addAll(poly.exterior);
+            for (List<RingEdge> interior: poly.interiorList) {
+                ringEdges.addAll(interior);
+            }
+        }
+        return ringEdges;
+    }
+
+    private interface RangeTask {
+        void run(int start, int end) throws Exception;
+    }
+
+    /**
+     * Split the range 0 to size into chunks, run each chunk as a task of the executor and
+     * wait for all of them. The first failure is rethrown.
+     */
+    private static void run(ExecutorService executor, int size, RangeTask task) throws Exception {
+        int parallelism = executor instanceof ForkJoinPool ?
+                ((ForkJoinPool)executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+        int chunk = Math.max(1, (size + parallelism * 4 - 1) / (parallelism * 4));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < size; start += chunk) {
+            final int s = start;
+            final int e = Math.min(size, start + chunk);
+            tasks.add(() -> {
+                task.run(s, e);
+                return null;
+            });
+        }
+        for (Future<Void> future: executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                throw cause instanceof Exception ? (Exception)cause : ee;
+            }
+        }
     }
 
     private void print(LineString ls, StringBuilder buf) {
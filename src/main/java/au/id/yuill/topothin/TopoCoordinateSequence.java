@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.impl.CoordinateArraySequence;
+
+/**
+ * A CoordinateSequence that also holds the TopoStore vertex id of each position, so that
+ * once a LineString has been loaded its vertices are found without a coordinate lookup.
+ * <br>The ids are only valid for the store that resolved them, they are ignored when the
+ * sequence is loaded into another store and are not serialized.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoCoordinateSequence extends CoordinateArraySequence {
+
+    static final long serialVersionUID = 1L;
+
+    private transient TopoStore owner;
+    private transient int[] vertexIds;
+
+    public TopoCoordinateSequence(Coordinate[] coordinates) {
+        super(coordinates);
+    }
+
+    public TopoCoordinateSequence(Coordinate[] coordinates, int dimension) {
+        super(coordinates, dimension);
+    }
+
+    public TopoCoordinateSequence(int size, int dimension) {
+        super(size, dimension);
+    }
+
+    public TopoCoordinateSequence(CoordinateSequence seq) {
+        super(seq);
+        if (seq instanceof TopoCoordinateSequence) {
+            TopoCoordinateSequence topoSeq = (TopoCoordinateSequence)seq;
+            owner = topoSeq.owner;
+            vertexIds = topoSeq.vertexIds;
+        }
+    }
+
+    /**
+     * The vertex ids resolved by the store, or null if they were resolved by another store
+     * or not at all.
+     */
+    public int[] getVertexIds(TopoStore store) {
+        return store == owner ? vertexIds : null;
+    }
+
+    public void setVertexIds(TopoStore store, int[] vertexIds) {
+        this.owner = store;
+        this.vertexIds = vertexIds;
+    }
+
+    @Deprecated
+    @Override
+    public Object clone() {
+        return copy();
+    }
+
+    @Override
+    public TopoCoordinateSequence copy() {
+        return new TopoCoordinateSequence(this);
+    }
+}
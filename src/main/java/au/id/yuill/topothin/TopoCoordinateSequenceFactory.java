@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+
+import java.io.Serializable;
+
+/**
+ * Creates TopoCoordinateSequences. The GeometryFactory of a TopoCoordData uses this factory,
+ * so rows read through it carry the vertex ids of their LineStrings once loaded.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoCoordinateSequenceFactory implements CoordinateSequenceFactory, Serializable {
+
+    static final long serialVersionUID = 1L;
+
+    private static final TopoCoordinateSequenceFactory INSTANCE = new TopoCoordinateSequenceFactory();
+
+    public static TopoCoordinateSequenceFactory instance() {
+        return INSTANCE;
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    @Override
+    public CoordinateSequence create(Coordinate[] coordinates) {
+        return new TopoCoordinateSequence(coordinates);
+    }
+
+    @Override
+    public CoordinateSequence create(CoordinateSequence coordSeq) {
+        return new TopoCoordinateSequence(coordSeq);
+    }
+
+    @Override
+    public CoordinateSequence create(int size, int dimension) {
+        return new TopoCoordinateSequence(size, dimension);
+    }
+}
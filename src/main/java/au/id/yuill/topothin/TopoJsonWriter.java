@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the thinned topology as TopoJSON, each edge used by a row being written once as
+ * an arc. Each table is an object of the topology with the name given for it, holding a
+ * MultiPolygon for each row with the row code and name as properties.
+ * <br>Arcs are quantised to a grid over the bounds of the arcs and delta encoded, vertices
+ * that quantise to the same grid position as the previous one being dropped. As every ring
+ * sharing an arc refers to the same quantised arc, neighbouring rows still meet exactly.
+ * <br>The arcs are numbered in a first pass over the rows, then the topology is written
+ * to the stream as it is generated. The stream is flushed but not closed.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoJsonWriter {
+
+    private int quantization = 100000;
+
+    public TopoJsonWriter() {
+    }
+
+    /**
+     * @param quantization The number of grid positions across the bounds in each direction,
+     *                     at least 2
+     */
+    public TopoJsonWriter(int quantization) {
+        if (quantization < 2) {
+            throw new IllegalArgumentException("Quantization must be at least 2: " + quantization);
+        }
+        this.quantization = quantization;
+    }
+
+    /**
+     * @param names The object name of each table, which must be distinct
+     */
+    public void write(TopoCoordData tcd, Map<Table, String> names, OutputStream out) throws Exception {
+        Set<String> distinct = new HashSet<>();
+        for (Table table: tcd.tableMap.keySet()) {
+            String name = names.get(table);
+            if (name == null) {
+                throw new IllegalArgumentException("No object name for table " + table);
+            }
+            if (!distinct.add(name)) {
+                throw new IllegalArgumentException("Object name used for more than one table: " + name);
+            }
+        }
+        // arcs are numbered in the order rows first use them
+        Map<Edge, Integer> arcs = new IdentityHashMap<>();
+        Edge[] arcEdges = new Edge[16];
+        Envelope bounds = new Envelope();
+        for (Table table: tcd.tableMap.keySet()) {
+            for (Row row: tcd.tableMap.get(table)) {
+                for (TopoPoly poly: row.topoPolyList) {
+                    arcEdges = number(poly.exterior, arcs, arcEdges, bounds);
+                    for (List<RingEdge> interior: poly.interiorList) {
+                        arcEdges = number(interior, arcs, arcEdges, bounds);
+                    }
+                }
+            }
+        }
+        double x0 = bounds.isNull() ? 0.0 : bounds.getMinX();
+        double y0 = bounds.isNull() ? 0.0 : bounds.getMinY();
+        double kx = bounds.isNull() || bounds.getWidth() == 0.0 ? 1.0 : (quantization - 1) / bounds.getWidth();
+        double ky = bounds.isNull() || bounds.getHeight() == 0.0 ? 1.0 : (quantization - 1) / bounds.getHeight();
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+        w.write("{\"type\":\"Topology\",\"transform\":{\"scale\":[");
+        w.write(Double.toString(1.0 / kx));
+        w.write(',');
+        w.write(Double.toString(1.0 / ky));
+        w.write("],\"translate\":[");
+        w.write(Double.toString(x0));
+        w.write(',');
+        w.write(Double.toString(y0));
+        w.write("]},\"objects\":{");
+        boolean firstTable = true;
+        for (Table table: tcd.tableMap.keySet()) {
+            w.write(firstTable ? "" : ",");
+            firstTable = false;
+            writeString(w, names.get(table));
+            w.write(":{\"type\":\"GeometryCollection\",\"geometries\":[");
+            boolean firstRow = true;
+            for (Row row: tcd.tableMap.get(table)) {
+                w.write(firstRow ? "" : ",");
+                firstRow = false;
+                writeRow(w, row, arcs);
+            }
+            w.write("]}");
+        }
+        w.write("},\"arcs\":[");
+        for (int a = 0; a < arcs.size(); a++) {
+            w.write(a == 0 ? "" : ",");
+            writeArc(w, arcEdges[a].getCoordArray(), x0, y0, kx, ky);
+        }
+        w.write("]}");
+        w.flush();
+    }
+
+    private static Edge[] number(List<RingEdge> edgeList, Map<Edge, Integer> arcs, Edge[] arcEdges, Envelope bounds) {
+        for (RingEdge ringEdge: edgeList) {
+            if (!arcs.containsKey(ringEdge.edge)) {
+                int arc = arcs.size();
+                if (arc == arcEdges.length) {
+                    Edge[] larger = new Edge[arc * 2];
+                    System.arraycopy(arcEdges, 0, larger, 0, arc);
+                    arcEdges = larger;
+                }
+                arcEdges[arc] = ringEdge.edge;
+                arcs.put(ringEdge.edge, arc);
+                for (Coordinate coord: ringEdge.edge.getCoordArray()) {
+                    bounds.expandToInclude(coord);
+                }
+            }
+        }
+        return arcEdges;
+    }
+
+    private static void writeRow(Writer w, Row row, Map<Edge, Integer> arcs) throws Exception {
+        w.write("{\"type\":\"MultiPolygon\",\"properties\":{\"code\":");
+        writeString(w, row.code);
+        w.write(",\"name\":");
+        writeString(w, row.name);
+        w.write("},\"arcs\":[");
+        for (int p = 0; p < row.topoPolyList.size(); p++) {
+            TopoPoly poly = row.topoPolyList.get(p);
+            w.write(p == 0 ? "[" : ",[");
+            writeRing(w, poly.exterior, arcs);
+            for (List<RingEdge> interior: poly.interiorList) {
+                w.write(',');
+                writeRing(w, interior, arcs);
+            }
+            w.write(']');
+        }
+        w.write("]}");
+    }
+
+    /**
+     * A ring is its list of arcs, a reversed arc being written as its ones complement.
+     */
+    private static void writeRing(Writer w, List<RingEdge> edgeList, Map<Edge, Integer> arcs) throws Exception {
+        w.write('[');
+        for (int i = 0; i < edgeList.size(); i++) {
+            RingEdge ringEdge = edgeList.get(i);
+            int arc = arcs.get(ringEdge.edge);
+            w.write(i == 0 ? "" : ",");
+            w.write(Integer.toString(ringEdge.forward ? arc : ~arc));
+        }
+        w.write(']');
+    }
+
+    private static void writeArc(Writer w, Coordinate[] coords, double x0, double y0, double kx, double ky) throws Exception {
+        w.write('[');
+        long lastX = 0;
+        long lastY = 0;
+        int points = 0;
+        for (Coordinate coord: coords) {
+            long x = Math.round((coord.x - x0) * kx);
+            long y = Math.round((coord.y - y0) * ky);
+            if (points == 0 || x != lastX || y != lastY) {
+                w.write(points == 0 ? "[" : ",[");
+                w.write(Long.toString(x - lastX));
+                w.write(',');
+                w.write(Long.toString(y - lastY));
+                w.write(']');
+                lastX = x;
+                lastY = y;
+                points++;
+            }
+        }
+        if (points == 1) {
+            // an arc keeps at least two positions
+            w.write(",[0,0]");
+        }
+        w.write(']');
+    }
+
+    private static void writeString(Writer w, String value) throws Exception {
+        w.write(quote(value));
+    }
+
+    /**
+     * @return The value as a JSON string, or null. Quotes, backslashes and control characters
+     * are escaped, other characters are left to the encoding of the output.
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder buf = new StringBuilder(value.length() + 2);
+        buf.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buf.append('\\').append(c);
+            } else if (c < 0x20) {
+                buf.append(String.format("\\u%04x", (int)c));
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf.append('"').toString();
+    }
+}
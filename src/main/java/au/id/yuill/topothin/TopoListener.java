@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+/**
+ * Receives notice of the phases of a TopoCoordData build, see TopoCoordData.addListener().
+ * Notices are given on the thread that called the phase method, including for phases run
+ * with an executor.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public interface TopoListener {
+
+    public enum Phase {
+        LOAD, FIND_NODES, CREATE_EDGES, SIMPLIFY_EDGES, CREATE_THINNED_POLYGONS
+    }
+
+    public default void phaseStarted(Phase phase) {
+    }
+
+    public default void phaseCompleted(PhaseStats stats) {
+    }
+
+    /**
+     * A row could not be reassembled by createThinnedPolygons().
+     */
+    public default void rowFailed(Row row, Exception e) {
+    }
+}
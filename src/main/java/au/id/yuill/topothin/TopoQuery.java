@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thinned geometry of the rows of a built topology at any tolerance, on demand, for serving
+ * from a long running process rather than generating each level of detail in advance.
+ * <br><br>Rows are found by bounding box through an STRtree of the envelopes of their source
+ * edges. Each row is assembled from its edges thinned by vertex significance, see
+ * VertexSignificance, which is computed once for every edge that does not have it. The
+ * tolerance is rounded down to a bucket, a fixed fraction of a doubling, so that nearby
+ * tolerances share results, and the thinned coordinates of each edge are held in a cache
+ * keyed by edge and bucket that drops the least recently used entry once full. Neighbouring
+ * rows share edges, so an edge is thinned once for all the rows along it.
+ * <br>Thinning can collapse a ring, such as one of two edges that are each thinned to a
+ * segment, which JTS rejects with an IllegalArgumentException. A row that collapses at its
+ * bucket is assembled at the next finer bucket, down to two doublings finer, and then from
+ * its source edges. Any other failure is not retried and is thrown to the caller.
+ * <br><br>The TopoCoordData must have its edges created and not be changed while queried;
+ * the edges need not be simplified. Queries may be made from several threads.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoQuery {
+
+    private final TopoCoordData tcd;
+    private final STRtree rowTree = new STRtree();
+    private final int bucketsPerDoubling;
+    private final Map<EdgeBucket, Coordinate[]> cache;
+    private long hits;
+    private long misses;
+
+    public TopoQuery(TopoCoordData tcd) {
+        this(tcd, 100000, 4);
+    }
+
+    /**
+     * @param maxEdges The number of thinned edges cached before the least recently used is dropped
+     * @param bucketsPerDoubling The number of tolerance buckets between a tolerance and its double
+     */
+    public TopoQuery(TopoCoordData tcd, final int maxEdges, int bucketsPerDoubling) {
+        this.tcd = tcd;
+        this.bucketsPerDoubling = bucketsPerDoubling;
+        this.cache = new LinkedHashMap<EdgeBucket, Coordinate[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<EdgeBucket, Coordinate[]> eldest) {
+                return size() > maxEdges;
+            }
+        };
+        for (Edge edge: tcd.edgeMap.values()) {
+            if (edge.getSignificance() == null) {
+                edge.setSignificance(VertexSignificance.douglasPeucker(edge.getSourceCoordArray()));
+            }
+        }
+        Map<Edge, Envelope> edgeEnvelopes = new IdentityHashMap<>();
+        for (List<Row> rows: tcd.tableMap.values()) {
+            for (Row row: rows) {
+                if (row.topoPolyList == null) {
+                    throw new IllegalStateException("Edges not created for row " + row.code);
+                }
+                Envelope env = new Envelope();
+                for (TopoPoly poly: row.topoPolyList) {
+                    // the interior rings lie within the exterior
+                    for (RingEdge ringEdge: poly.exterior) {
+                        Envelope edgeEnv = edgeEnvelopes.get(ringEdge.edge);
+                        if (edgeEnv == null) {
+                            edgeEnv = envelope(ringEdge.edge);
+                            edgeEnvelopes.put(ringEdge.edge, edgeEnv);
+                        }
+                        env.expandToInclude(edgeEnv);
+                    }
+                }
+                if (!env.isNull()) {
+                    rowTree.insert(env, row);
+                }
+            }
+        }
+        rowTree.build();
+    }
+
+    private static Envelope envelope(Edge edge) {
+        Envelope env = new Envelope();
+        for (Coordinate coord: edge.getSourceCoordArray()) {
+            env.expandToInclude(coord);
+        }
+        return env;
+    }
+
+    /**
+     * @return The rows whose envelope intersects the envelope given, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<Row> rows(Envelope env) {
+        return rowTree.query(env);
+    }
+
+    /**
+     * A row that collapses even when assembled from its source edges does not stop the others;
+     * it is left out of the result and reported to the listeners of the TopoCoordData.
+     *
+     * @return The thinned geometry of each row whose envelope intersects the envelope given
+     */
+    public Map<Row, MultiPolygon> query(Envelope env, double tolerance) throws Exception {
+        Map<Row, MultiPolygon> result = new LinkedHashMap<>();
+        for (Row row: rows(env)) {
+            try {
+                result.put(row, thinned(row, tolerance));
+            } catch (IllegalArgumentException e) {
+                tcd.rowFailed(row, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The geometry of the row with its edges thinned to the tolerance, rounded down to
+     * its bucket, or to a finer bucket if the row collapses. A tolerance that is not positive
+     * gives the source geometry.
+     */
+    public MultiPolygon thinned(Row row, double tolerance) throws Exception {
+        if (tolerance > 0.0) {
+            int bucket = (int)Math.floor(Math.log(tolerance) / Math.log(2.0) * bucketsPerDoubling);
+            for (int b = bucket; b > bucket - 2 * bucketsPerDoubling; b--) {
+                final int finer = b;
+                final double bucketTolerance = Math.pow(2.0, (double)b / bucketsPerDoubling);
+                try {
+                    return tcd.createPolygon(row, edge -> thinned(edge, finer, bucketTolerance));
+                } catch (IllegalArgumentException e) {
+                    // a ring collapses at this bucket
+                }
+            }
+        }
+        return tcd.createPolygon(row, Edge::getSourceCoordArray);
+    }
+
+    private Coordinate[] thinned(Edge edge, int bucket, double tolerance) {
+        EdgeBucket key = new EdgeBucket(edge, bucket);
+        synchronized (cache) {
+            Coordinate[] coords = cache.get(key);
+            if (coords != null) {
+                hits++;
+                return coords;
+            }
+            misses++;
+        }
+        Coordinate[] coords = VertexSignificance.filter(edge.getSourceCoordArray(), edge.getSignificance(), tolerance);
+        synchronized (cache) {
+            cache.put(key, coords);
+        }
+        return coords;
+    }
+
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    public int getCachedEdges() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * An edge, compared by identity, and a tolerance bucket.
+     */
+    private static class EdgeBucket {
+        private final Edge edge;
+        private final int bucket;
+
+        EdgeBucket(Edge edge, int bucket) {
+            this.edge = edge;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof EdgeBucket)) {
+                return false;
+            }
+            EdgeBucket that = (EdgeBucket)o;
+            return edge == that.edge && bucket == that.bucket;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(edge) * 31 + bucket;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary snapshot of the topology created by createEdges(), allowing simplification
+ * to be repeated without reloading and rebuilding the topology.
+ * <br><br>The file holds a header with the SRID and precision model, the layer of each table,
+ * a node table of lat/lon pairs, an edge table of node indexes, coordinate ranges and edge
+ * keys, the source coordinates of all edges and the rows. Each row holds its table index,
+ * code, name and the ring edges of each polygon as edge indexes, with the complement of the
+ * index marking a reversed ring edge.
+ * <br><br>Reading maps the file. Rows and nodes are materialised immediately, but the
+ * coordinates of an edge are only decoded when the edge is first used. The snapshot holds
+ * no vertices, so the TopoCoordData read is compacted, see TopoCoordData.compact().
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoSnapshot {
+
+    private static final long MAGIC = 0x544F504F534E4150L; // TOPOSNAP
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 96;
+    private static final int EDGE_SIZE = 32;
+    private static final long WINDOW = 1L << 30;
+
+    private TopoSnapshot() {
+    }
+
+    /**
+     * Write the edges and rows of the TopoCoordData, with its precision model and the layer
+     * of each table. Every table in tableMap must be in the table list, as tables are
+     * recorded by their position in it.
+     */
+    public static void write(TopoCoordData tcd, List<Table> tables, Path path) throws IOException {
+        Map<Table, Integer> tableIndex = new HashMap<>();
+        for (int i = 0; i < tables.size(); i++) {
+            tableIndex.put(tables.get(i), i);
+        }
+        for (Table table: tcd.tableMap.keySet()) {
+            if (!tableIndex.containsKey(table)) {
+                throw new IllegalArgumentException("Table not in table list: " + table);
+            }
+        }
+        CoordIndex nodes = new CoordIndex();
+        Map<Edge, Integer> edgeIndex = new IdentityHashMap<>();
+        List<Edge> edges = new ArrayList<>(tcd.edgeMap.values());
+        long coordCount = 0;
+        for (Edge edge: edges) {
+            edgeIndex.put(edge, edgeIndex.size());
+            nodes.add(edge.getNode1().lat, edge.getNode1().lon);
+            nodes.add(edge.getNode2().lat, edge.getNode2().lon);
+            coordCount += edge.getSourceCoordArray().length;
+        }
+        int rowCount = 0;
+        for (List<Row> rows: tcd.tableMap.values()) {
+            rowCount += rows.size();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.position(HEADER_SIZE);
+            long layersOffset = out.position();
+            out.putInt(tcd.hasLayers() ? tables.size() : -1);
+            if (tcd.hasLayers()) {
+                for (Table table: tables) {
+                    out.putInt(tcd.getLayer(table));
+                }
+            }
+            long nodesOffset = out.position();
+            for (int i = 0; i < nodes.size(); i++) {
+                out.putDouble(nodes.lat(i));
+                out.putDouble(nodes.lon(i));
+            }
+            long edgesOffset = out.position();
+            long coordStart = 0;
+            for (Edge edge: edges) {
+                out.putInt(nodes.get(edge.getNode1().lat, edge.getNode1().lon));
+                out.putInt(nodes.get(edge.getNode2().lat, edge.getNode2().lon));
+                out.putLong(coordStart);
+                out.putInt(edge.getSourceCoordArray().length);
+                out.putInt(0);
+                out.putLong(edge.key());
+                coordStart += edge.getSourceCoordArray().length;
+            }
+            long coordsOffset = out.position();
+            for (Edge edge: edges) {
+                for (Coordinate coord: edge.getSourceCoordArray()) {
+                    out.putDouble(coord.x);
+                    out.putDouble(coord.y);
+                }
+            }
+            long rowsOffset = out.position();
+            for (Table table: tcd.tableMap.keySet()) {
+                for (Row row: tcd.tableMap.get(table)) {
+                    out.putInt(tableIndex.get(table));
+                    out.putString(row.code);
+                    out.putString(row.name);
+                    out.putInt(row.topoPolyList.size());
+                    for (TopoPoly poly: row.topoPolyList) {
+                        out.putInt(1 + poly.interiorList.size());
+                        putRing(out, poly.exterior, edgeIndex);
+                        for (List<RingEdge> interior: poly.interiorList) {
+                            putRing(out, interior, edgeIndex);
+                        }
+                    }
+                }
+            }
+            long end = out.position();
+            out.position(0);
+            out.putLong(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(tcd.factory.getSRID());
+            out.putInt(nodes.size());
+            out.putInt(edges.size());
+            out.putInt(rowCount);
+            PrecisionModel precisionModel = tcd.factory.getPrecisionModel();
+            out.putInt(precisionType(precisionModel.getType()));
+            out.putLong(coordCount);
+            out.putLong(nodesOffset);
+            out.putLong(edgesOffset);
+            out.putLong(coordsOffset);
+            out.putLong(rowsOffset);
+            out.putLong(end);
+            out.putLong(layersOffset);
+            out.putDouble(precisionModel.getScale());
+            out.flush();
+        }
+    }
+
+    private static int precisionType(PrecisionModel.Type type) {
+        if (type == PrecisionModel.FIXED) {
+            return 2;
+        }
+        return type == PrecisionModel.FLOATING_SINGLE ? 1 : 0;
+    }
+
+    private static PrecisionModel precisionModel(int type, double scale) throws IOException {
+        switch (type) {
+            case 0:
+                return new PrecisionModel();
+            case 1:
+                return new PrecisionModel(PrecisionModel.FLOATING_SINGLE);
+            case 2:
+                return new PrecisionModel(scale);
+            default:
+                throw new IOException("Unknown precision model type " + type);
+        }
+    }
+
+    private static void putRing(Output out, List<RingEdge> ring, Map<Edge, Integer> edgeIndex) throws IOException {
+        out.putInt(ring.size());
+        for (RingEdge ringEdge: ring) {
+            int index = edgeIndex.get(ringEdge.edge);
+            out.putInt(ringEdge.forward ? index : ~index);
+        }
+    }
+
+    /**
+     * Read a snapshot into a new TopoCoordData ready for simplification, with the precision
+     * model and table layers of the TopoCoordData written. The table list must hold the
+     * tables in the order used to write the snapshot. The rows have no source geometry until
+     * createThinnedPolygons() is called. As after compact(), rows cannot be added or updated
+     * and nodes and edges cannot be found again.
+     */
+    public static TopoCoordData read(Path path, List<Table> tables, Simplifier simplifier) throws IOException {
+        Mapped in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = new Mapped(channel);
+        }
+        if (in.getLong(0) != MAGIC || in.getInt(8) != VERSION) {
+            throw new IOException("Not a topology snapshot: " + path);
+        }
+        int srid = in.getInt(12);
+        int nodeCount = in.getInt(16);
+        int edgeCount = in.getInt(20);
+        int rowCount = in.getInt(24);
+        long nodesOffset = in.getLong(40);
+        long edgesOffset = in.getLong(48);
+        long coordsOffset = in.getLong(56);
+        long rowsOffset = in.getLong(64);
+        long layersOffset = in.getLong(80);
+        TopoCoordData tcd = new TopoCoordData(simplifier, srid, precisionModel(in.getInt(28), in.getDouble(88)));
+        int layerCount = in.getInt(layersOffset);
+        if (layerCount >= 0) {
+            if (layerCount != tables.size()) {
+                throw new IllegalArgumentException("Snapshot written with " + layerCount + " tables, not " + tables.size());
+            }
+            for (int i = 0; i < layerCount; i++) {
+                tcd.setLayer(tables.get(i), in.getInt(layersOffset + 4 + i * 4L));
+            }
+        }
+        TopoCoord[] nodes = new TopoCoord[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            TopoCoord tc = new TopoCoord();
+            tc.lat = in.getDouble(nodesOffset + i * 16L);
+            tc.lon = in.getDouble(nodesOffset + i * 16L + 8);
+            tc.node = true;
+            nodes[i] = tc;
+        }
+        Edge[] edges = new Edge[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            long pos = edgesOffset + (long)i * EDGE_SIZE;
+            edges[i] = new MappedEdge(nodes[in.getInt(pos)], nodes[in.getInt(pos + 4)], in.getLong(pos + 24), in,
+                    coordsOffset + in.getLong(pos + 8) * 16, in.getInt(pos + 16));
+            tcd.edgeMap.put(edges[i], edges[i]);
+        }
+        long pos = rowsOffset;
+        for (int r = 0; r < rowCount; r++) {
+            Row row = new Row();
+            row.table = tables.get(in.getInt(pos));
+            pos += 4;
+            row.code = in.getString(pos);
+            pos += Mapped.stringSize(in.getInt(pos));
+            row.name = in.getString(pos);
+            pos += Mapped.stringSize(in.getInt(pos));
+            int polyCount = in.getInt(pos);
+            pos += 4;
+            row.topoPolyList = new ArrayList<>(polyCount);
+            for (int p = 0; p < polyCount; p++) {
+                int ringCount = in.getInt(pos);
+                pos += 4;
+                TopoPoly poly = new TopoPoly();
+                for (int k = 0; k < ringCount; k++) {
+                    int size = in.getInt(pos);
+                    pos += 4;
+                    List<RingEdge> ring = new ArrayList<>(size);
+                    for (int e = 0; e < size; e++) {
+                        int index = in.getInt(pos);
+                        pos += 4;
+                        ring.add(index >= 0 ? new RingEdge(edges[index], true) : new RingEdge(edges[~index], false));
+                    }
+                    if (k == 0) {
+                        poly.exterior = ring;
+                    } else {
+                        poly.interiorList.add(ring);
+                    }
+                }
+                row.topoPolyList.add(poly);
+            }
+            List<Row> rows = tcd.tableMap.get(row.table);
+            if (rows == null) {
+                rows = new ArrayList<>();
+                tcd.tableMap.put(row.table, rows);
+            }
+            rows.add(row);
+        }
+        tcd.setCompacted();
+        return tcd;
+    }
+
+    /**
+     * An edge whose source coordinates are decoded from the mapped file on first use.
+     */
+    private static class MappedEdge extends Edge {
+        private final Mapped in;
+        private final long offset;
+        private final int size;
+
+        MappedEdge(TopoCoord node1, TopoCoord node2, long key, Mapped in, long offset, int size) {
+            super(node1, node2, key);
+            this.in = in;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        Coordinate[] loadCoordArray() {
+            Coordinate[] coords = new Coordinate[size];
+            for (int i = 0; i < size; i++) {
+                coords[i] = new Coordinate(in.getDouble(offset + i * 16L), in.getDouble(offset + i * 16L + 8));
+            }
+            return coords;
+        }
+    }
+
+    /**
+     * A read only mapping of a file in windows of up to 1GB. Values are aligned to their size
+     * so that none spans two windows, except the bytes of strings which are read singly.
+     */
+    private static class Mapped {
+        private final MappedByteBuffer[] windows;
+
+        Mapped(FileChannel channel) throws IOException {
+            long size = channel.size();
+            windows = new MappedByteBuffer[(int)((size + WINDOW - 1) / WINDOW)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * WINDOW;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+            }
+        }
+
+        int getInt(long pos) {
+            return windows[(int)(pos / WINDOW)].getInt((int)(pos % WINDOW));
+        }
+
+        long getLong(long pos) {
+            return windows[(int)(pos / WINDOW)].getLong((int)(pos % WINDOW));
+        }
+
+        double getDouble(long pos) {
+            return windows[(int)(pos / WINDOW)].getDouble((int)(pos % WINDOW));
+        }
+
+        String getString(long pos) {
+            int length = getInt(pos);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                long p = pos + 4 + i;
+                bytes[i] = windows[(int)(p / WINDOW)].get((int)(p % WINDOW));
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return The size of a string with its length and padding to a multiple of 4 bytes
+         */
+        static int stringSize(int length) {
+            return 4 + ((Math.max(length, 0) + 3) & ~3);
+        }
+    }
+
+    /**
+     * Buffered output to a file channel that tracks the file position.
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() throws IOException {
+            return channel.position() + buffer.position();
+        }
+
+        void position(long position) throws IOException {
+            flush();
+            channel.position(position);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (int i = 0; i < Mapped.stringSize(bytes.length) - 4; i++) {
+                ensure(1);
+                buffer.put(i < bytes.length ? bytes[i] : 0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar store of vertices, their ring membership and their node status. Vertex
+ * coordinates are held in a CoordIndex, node status in a BitSet and ring membership in
+ * compressed sparse row form: the sorted ids of the rings containing vertex v are
+ * members[offsets[v]] to members[offsets[v + 1] - 1].
+ * <br><br>Membership is recorded as (vertex, ring) pairs while loading and converted to
+ * compressed form by buildMembership(), which is called before node detection.
+ * Rings may be added after membership is built and removed rings are excluded from
+ * membership, which allows a built topology to be updated.
+ * <br><br>Rings and vertices may be added by several threads at once. Each call holds the
+ * lock of the store, so addVertices() adds a whole ring for one lock. Everything else,
+ * including removing rings and building membership, must be done by one thread once
+ * loading is complete.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoStore implements Serializable {
+
+    static final long serialVersionUID = 1L;
+
+    private CoordIndex index;
+    private BitSet nodes = new BitSet();
+    private BitSet removedRings = new BitSet();
+
+    private List<LineString> rings = new ArrayList<>();
+    private Map<LineString, Integer> ringIds = new IdentityHashMap<>();
+
+    private int[] pairVertex = new int[1024];
+    private int[] pairRing = new int[1024];
+    private int pairs;
+    private boolean wholeRings = true; // no vertex added singly, so each ring's pairs are consecutive
+
+    private int[] offsets = new int[1];
+    private int[] members = new int[0];
+
+    public TopoStore() {
+        index = new CoordIndex();
+    }
+
+    /**
+     * A store whose vertices are held as int grid steps if the model is fixed, see CoordIndex.
+     */
+    public TopoStore(PrecisionModel precisionModel) {
+        index = new CoordIndex(precisionModel);
+    }
+
+    /**
+     * @return The id of the ring, assigning a new one if the LineString has not been seen before
+     */
+    public synchronized int addRing(LineString lineString) {
+        Integer ring = ringIds.get(lineString);
+        if (ring == null) {
+            ring = rings.size();
+            rings.add(lineString);
+            ringIds.put(lineString, ring);
+        }
+        return ring;
+    }
+
+    /**
+     * Remove a ring from the membership of its vertices.
+     */
+    public void removeRing(int ring) {
+        removedRings.set(ring);
+        LineString lineString = rings.set(ring, null);
+        if (lineString != null) {
+            ringIds.remove(lineString);
+        }
+    }
+
+    /**
+     * Add a vertex of a ring.
+     *
+     * @return The id of the vertex
+     */
+    public synchronized int addVertex(int ring, double lat, double lon) {
+        wholeRings = false;
+        int vertex = index.add(lat, lon);
+        if (pairs == pairVertex.length) {
+            pairVertex = Arrays.copyOf(pairVertex, pairs * 2);
+            pairRing = Arrays.copyOf(pairRing, pairs * 2);
+        }
+        pairVertex[pairs] = vertex;
+        pairRing[pairs] = ring;
+        pairs++;
+        return vertex;
+    }
+
+    /**
+     * Add all the vertices of a ring, recording its membership consecutively.
+     *
+     * @return The id of each vertex
+     */
+    public synchronized int[] addVertices(int ring, CoordinateSequence seq) {
+        int size = seq.size();
+        if (pairs + size > pairVertex.length) {
+            pairVertex = Arrays.copyOf(pairVertex, Math.max(pairs + size, pairs * 2));
+            pairRing = Arrays.copyOf(pairRing, pairVertex.length);
+        }
+        int[] vertices = new int[size];
+        for (int i = 0; i < size; i++) {
+            vertices[i] = index.add(seq.getY(i), seq.getX(i));
+            pairVertex[pairs + i] = vertices[i];
+        }
+        Arrays.fill(pairRing, pairs, pairs + size, ring);
+        pairs += size;
+        return vertices;
+    }
+
+    /**
+     * Convert the membership pairs recorded since the last call into compressed form,
+     * merging them with any membership already built. Duplicate memberships, such as the
+     * closing vertex of a ring, are removed.
+     */
+    public void buildMembership() {
+        if (pairs == 0 && offsets.length == index.size() + 1) {
+            return;
+        }
+        int vertexCount = index.size();
+        int oldVertexCount = offsets.length - 1;
+        int[] counts = new int[vertexCount + 1];
+        for (int v = 0; v < oldVertexCount; v++) {
+            counts[v + 1] = offsets[v + 1] - offsets[v];
+        }
+        for (int i = 0; i < pairs; i++) {
+            counts[pairVertex[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            counts[v + 1] += counts[v];
+        }
+        int[] newMembers = new int[counts[vertexCount]];
+        int[] fill = Arrays.copyOf(counts, vertexCount);
+        for (int v = 0; v < oldVertexCount; v++) {
+            for (int m = offsets[v]; m < offsets[v + 1]; m++) {
+                newMembers[fill[v]++] = members[m];
+            }
+        }
+        for (int i = 0; i < pairs; i++) {
+            newMembers[fill[pairVertex[i]]++] = pairRing[i];
+        }
+        // sort and remove duplicates within each slice, compacting in place
+        int[] newOffsets = new int[vertexCount + 1];
+        int size = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int start = counts[v];
+            int end = counts[v + 1];
+            Arrays.sort(newMembers, start, end);
+            newOffsets[v] = size;
+            for (int m = start; m < end; m++) {
+                if (m == start || newMembers[m] != newMembers[m - 1]) {
+                    newMembers[size++] = newMembers[m];
+                }
+            }
+        }
+        newOffsets[vertexCount] = size;
+        offsets = newOffsets;
+        members = size == newMembers.length ? newMembers : Arrays.copyOf(newMembers, size);
+        pairs = 0;
+        pairVertex = new int[1024];
+        pairRing = new int[1024];
+    }
+
+    /**
+     * Build membership on first use by sorting the recorded (vertex, ring) pairs, packed into
+     * longs, rather than by counting. The pairs are kept afterwards, in the order they were
+     * recorded, for testRecordedNodes() until releasePairs() is called.
+     *
+     * @param parallel If true the pairs are sorted with Arrays.parallelSort
+     * @return false, having done nothing, if membership has been built before, rings
+     * removed or any vertex added by addVertex(), as the recorded pairs then no longer
+     * describe every ring a whole ring at a time
+     */
+    public boolean buildMembershipSorted(boolean parallel) {
+        if (offsets.length > 1 || !removedRings.isEmpty() || !wholeRings) {
+            return false;
+        }
+        long[] tuples = new long[pairs];
+        for (int i = 0; i < pairs; i++) {
+            tuples[i] = (long)pairVertex[i] << 32 | pairRing[i];
+        }
+        if (parallel) {
+            Arrays.parallelSort(tuples);
+        } else {
+            Arrays.sort(tuples);
+        }
+        int vertexCount = index.size();
+        int[] newOffsets = new int[vertexCount + 1];
+        int[] newMembers = new int[pairs];
+        int size = 0;
+        for (int i = 0; i < tuples.length; i++) {
+            if (i == 0 || tuples[i] != tuples[i - 1]) {
+                newMembers[size++] = (int)tuples[i];
+                newOffsets[(int)(tuples[i] >>> 32) + 1] = size;
+            }
+        }
+        // vertices without a pair end where the vertex before them does
+        for (int v = 1; v <= vertexCount; v++) {
+            newOffsets[v] = Math.max(newOffsets[v], newOffsets[v - 1]);
+        }
+        offsets = newOffsets;
+        members = size == newMembers.length ? newMembers : Arrays.copyOf(newMembers, size);
+        return true;
+    }
+
+    public int pairCount() {
+        return pairs;
+    }
+
+    /**
+     * Test each recorded pair from start to end against the pair before it, when both are of
+     * the same ring. As a ring records its vertices consecutively this tests every pair of
+     * adjacent vertices, provided rings were loaded a whole ring at a time. Membership must
+     * be built, and is only read, so ranges may be tested concurrently.
+     */
+    public void testRecordedNodes(int start, int end, BitSet found) {
+        for (int i = Math.max(start, 1); i < end; i++) {
+            if (pairRing[i] == pairRing[i - 1]) {
+                testNode(pairVertex[i - 1], pairVertex[i], found);
+            }
+        }
+    }
+
+    /**
+     * Discard the recorded pairs once membership has been built from them.
+     */
+    public void releasePairs() {
+        pairs = 0;
+        pairVertex = new int[1024];
+        pairRing = new int[1024];
+    }
+
+    /**
+     * Compare the ring membership of two adjacent vertices. A vertex that belongs to a ring
+     * the other vertex does not belong to is a node.
+     */
+    public void testNode(int vertex, int nextVertex) {
+        testNode(vertex, nextVertex, nodes);
+    }
+
+    /**
+     * Compare the ring membership of two adjacent vertices, recording nodes in the supplied
+     * set rather than the store. Membership is only read, so this may be called concurrently.
+     */
+    public void testNode(int vertex, int nextVertex, BitSet found) {
+        if (!containsAll(vertex, nextVertex)) { // next vertex contains a new ring, thus is a node
+            found.set(nextVertex);
+        }
+        if (!containsAll(nextVertex, vertex)) { // this vertex contains a new ring, thus is a node
+            found.set(vertex);
+        }
+    }
+
+    /**
+     * Compare the ring membership of two adjacent vertices counting only the rings of one
+     * layer, so that rings of other layers do not make nodes. Membership is only read, so
+     * this may be called concurrently.
+     *
+     * @param ringLayers The layer of each ring
+     */
+    public void testNode(int vertex, int nextVertex, BitSet found, int[] ringLayers, int layer) {
+        if (!containsAll(vertex, nextVertex, ringLayers, layer)) {
+            found.set(nextVertex);
+        }
+        if (!containsAll(nextVertex, vertex, ringLayers, layer)) {
+            found.set(vertex);
+        }
+    }
+
+    /**
+     * @return true if every ring containing inner also contains outer
+     */
+    private boolean containsAll(int outer, int inner) {
+        int o = offsets[outer];
+        int oEnd = offsets[outer + 1];
+        int iEnd = offsets[inner + 1];
+        boolean removed = !removedRings.isEmpty();
+        for (int i = offsets[inner]; i < iEnd; i++) {
+            int ring = members[i];
+            if (removed && removedRings.get(ring)) {
+                continue;
+            }
+            while (o < oEnd && members[o] < ring) {
+                o++;
+            }
+            if (o == oEnd || members[o] != ring) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if every ring of the layer containing inner also contains outer
+     */
+    private boolean containsAll(int outer, int inner, int[] ringLayers, int layer) {
+        int o = offsets[outer];
+        int oEnd = offsets[outer + 1];
+        int iEnd = offsets[inner + 1];
+        boolean removed = !removedRings.isEmpty();
+        for (int i = offsets[inner]; i < iEnd; i++) {
+            int ring = members[i];
+            if (ringLayers[ring] != layer || removed && removedRings.get(ring)) {
+                continue;
+            }
+            while (o < oEnd && members[o] < ring) {
+                o++;
+            }
+            if (o == oEnd || members[o] != ring) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int vertexId(Coordinate coord) {
+        return index.get(coord.y, coord.x);
+    }
+
+    public int vertexCount() {
+        return index.size();
+    }
+
+    public int ringCount() {
+        return rings.size();
+    }
+
+    public CoordIndex getIndex() {
+        return index;
+    }
+
+    public double lat(int vertex) {
+        return index.lat(vertex);
+    }
+
+    public double lon(int vertex) {
+        return index.lon(vertex);
+    }
+
+    public boolean isNode(int vertex) {
+        return nodes.get(vertex);
+    }
+
+    public void setNode(int vertex) {
+        nodes.set(vertex);
+    }
+
+    public void clearNode(int vertex) {
+        nodes.clear(vertex);
+    }
+
+    public void addNodes(BitSet found) {
+        nodes.or(found);
+    }
+
+    /**
+     * @return The id of the next node at or after the vertex, or -1 if there is none
+     */
+    public int nextNode(int vertex) {
+        return nodes.nextSetBit(vertex);
+    }
+
+    public int nodeCount() {
+        return nodes.cardinality();
+    }
+
+    /**
+     * @return The ids of the rings containing the vertex, excluding removed rings
+     */
+    public int[] getRingIds(int vertex) {
+        int[] result = new int[offsets[vertex + 1] - offsets[vertex]];
+        int size = 0;
+        for (int m = offsets[vertex]; m < offsets[vertex + 1]; m++) {
+            if (!removedRings.get(members[m])) {
+                result[size++] = members[m];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @return The LineStrings containing the vertex, building membership first if required
+     */
+    public LineString[] getRings(int vertex) {
+        buildMembership();
+        LineString[] result = new LineString[offsets[vertex + 1] - offsets[vertex]];
+        int size = 0;
+        for (int m = offsets[vertex]; m < offsets[vertex + 1]; m++) {
+            if (!removedRings.get(members[m])) {
+                result[size++] = rings.get(members[m]);
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Estimate the heap held by the arrays of this store from their lengths, assuming a 64 bit
+     * JVM with compressed references (16 byte array headers, 8 byte alignment). The estimate
+     * is arithmetic, not a measurement; the rings and their geometry are not included. The
+     * MemoryComparison program of the benchmarks module measures the heap retained by the
+     * store against the per vertex TopoCoord model it replaced.
+     *
+     * @return A printable report
+     */
+    public String memoryReport() {
+        buildMembership();
+        long vertices = index.size();
+        long indexBytes = array(index.capacity() * 4L) + 2 * array(vertices * (index.isFixed() ? 4 : 8));
+        long membershipBytes = array(offsets.length * 4L) + array(members.length * 4L);
+        long nodeBytes = align(16 + (nodes.length() + 63) / 64 * 8);
+        long pairBytes = array(pairVertex.length * 4L) + array(pairRing.length * 4L);
+        StringBuilder sb = new StringBuilder();
+        sb.append("vertices:                    ").append(vertices).append('\n');
+        sb.append("ring memberships:            ").append(members.length).append('\n');
+        sb.append("nodes:                       ").append(nodeCount()).append('\n');
+        sb.append("estimated index bytes:       ").append(indexBytes).append('\n');
+        sb.append("estimated membership bytes:  ").append(membershipBytes).append('\n');
+        sb.append("estimated node bytes:        ").append(nodeBytes).append('\n');
+        sb.append("estimated pair bytes:        ").append(pairBytes).append('\n');
+        sb.append("estimated total bytes:       ").append(indexBytes + membershipBytes + nodeBytes + pairBytes).append('\n');
+        return sb.toString();
+    }
+
+    private static long array(long bytes) {
+        return align(16 + bytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
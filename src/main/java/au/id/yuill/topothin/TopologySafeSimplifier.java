@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.algorithm.Distance;
+import org.locationtech.jts.algorithm.LineIntersector;
+import org.locationtech.jts.algorithm.RobustLineIntersector;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simplification of all edges that prevents a simplified edge from crossing any other edge,
+ * or itself.
+ * <br><br>Each edge is first simplified from its source coordinates by an ArraySimplifier. Each shortcut, a segment of
+ * the result replacing several source segments, is then tested against a single STRtree of
+ * the source segments of every edge, built once and indexed in runs of up to 8 segments,
+ * and a Quadtree of the shortcuts already accepted. A shortcut that crosses or overlaps
+ * another segment is split at its furthest source vertex and the two halves tested again,
+ * so vertices are only put back where needed. Edges may still meet at their shared nodes.
+ * <br>TopoCoordData does not give this simplifier an edge of one layer, see
+ * TopoCoordData.setLayer(), that runs along edges of other layers, but builds it from their
+ * results, so the layers nest and none crosses another. Edges of layers that do not nest
+ * may still lie partly along each other, so a source segment may belong to several edges.
+ * Each distinct segment is tested once, and no longer once every edge it belongs to has
+ * replaced it by an accepted shortcut. A shortcut is not tested against the source segments
+ * it replaces, wherever they belong, nor against accepted shortcuts that replace only those
+ * segments, so edges along each other do not block each other's shortcuts.
+ * <br>Edges added by TopoCoordData.updateRows() are simplified with the edges already
+ * simplified as fixed edges, whose simplified segments are tested like source segments but
+ * never replaced, so the new edges cross neither each other nor the rest of the topology.
+ * <br>Edges are processed in iteration order on the calling thread, also when
+ * TopoCoordData.simplifyEdges() is given an executor, and their results are not kept by a
+ * SimplificationCache, as each depends on the other edges. Simplifying a single edge
+ * through the Simplifier interface uses the ArraySimplifier alone.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopologySafeSimplifier implements BatchSimplifier, ArraySimplifier {
+
+    private static final int RUN = 8;
+
+    private final ArraySimplifier simplifier;
+
+    public TopologySafeSimplifier() {
+        this(new ArrayDouglasPeuckerSimplifier());
+    }
+
+    public TopologySafeSimplifier(ArraySimplifier simplifier) {
+        this.simplifier = simplifier;
+    }
+
+    @Override
+    public int simplify(Coordinate[] coords, int[] kept) {
+        return simplifier.simplify(coords, kept);
+    }
+
+    @Override
+    public void simplify(Collection<Edge> edgeCollection) {
+        simplify(edgeCollection, Collections.<Edge>emptyList());
+    }
+
+    /**
+     * The fixed edges follow the edges to simplify in the index, with their simplified
+     * coordinates in place of source coordinates.
+     */
+    @Override
+    public void simplify(Collection<Edge> edgeCollection, Collection<Edge> fixed) {
+        int simplified = edgeCollection.size();
+        Edge[] edges = edgeCollection.toArray(new Edge[simplified + fixed.size()]);
+        int f = simplified;
+        for (Edge edge: fixed) {
+            edges[f++] = edge;
+        }
+        Coordinate[][] coords = new Coordinate[edges.length][];
+        int[] offsets = new int[edges.length + 1];
+        int runs = 0;
+        for (int e = 0; e < edges.length; e++) {
+            coords[e] = e < simplified ? edges[e].getSourceCoordArray() : edges[e].getCoordArray();
+            int segments = coords[e].length - 1;
+            offsets[e + 1] = offsets[e] + segments;
+            runs += (segments + RUN - 1) / RUN;
+        }
+        // the distinct segment of each source segment, and where that segment first occurs
+        int[] segmentIds = new int[offsets[edges.length]];
+        int[] first = new int[segmentIds.length];
+        int[] owners = new int[segmentIds.length];
+        Map<Segment, Integer> distinct = new HashMap<>();
+        for (int e = 0; e < edges.length; e++) {
+            Coordinate[] c = coords[e];
+            for (int i = 0; i < c.length - 1; i++) {
+                Integer id = distinct.get(new Segment(c[i], c[i + 1]));
+                if (id == null) {
+                    id = distinct.size();
+                    distinct.put(new Segment(c[i], c[i + 1]), id);
+                    first[id] = offsets[e] + i;
+                }
+                segmentIds[offsets[e] + i] = id;
+                owners[id]++;
+            }
+        }
+        distinct = null;
+        // each run is an item of the tree, identified by its edge and first segment
+        STRtree tree = new STRtree();
+        int[] runEdge = new int[runs];
+        int[] runStart = new int[runs];
+        int run = 0;
+        for (int e = 0; e < edges.length; e++) {
+            Coordinate[] c = coords[e];
+            for (int start = 0; start < c.length - 1; start += RUN) {
+                Envelope env = new Envelope(c[start]);
+                for (int i = start + 1; i <= Math.min(start + RUN, c.length - 1); i++) {
+                    env.expandToInclude(c[i]);
+                }
+                runEdge[run] = e;
+                runStart[run] = start;
+                tree.insert(env, run++);
+            }
+        }
+        tree.build();
+        Index index = new Index(coords, offsets, segmentIds, first, owners, tree, runEdge, runStart);
+        int[] kept = new int[64];
+        int[] sections = new int[64];
+        for (int e = 0; e < simplified; e++) {
+            Coordinate[] c = coords[e];
+            if (kept.length < c.length) {
+                kept = new int[c.length * 2];
+                sections = new int[c.length * 2];
+            }
+            int count = simplifier.simplify(c, kept);
+            // sections are taken from the stack left to right
+            int top = 0;
+            for (int k = count - 1; k > 0; k--) {
+                sections[top++] = kept[k - 1];
+                sections[top++] = kept[k];
+            }
+            Coordinate[] result = new Coordinate[c.length];
+            int size = 0;
+            result[size++] = c[0];
+            while (top > 0) {
+                int end = sections[--top];
+                int start = sections[--top];
+                if (end - start == 1 || index.accept(e, start, end)) {
+                    result[size++] = c[end];
+                } else {
+                    int max = furthest(c, start, end);
+                    if (top + 4 > sections.length) {
+                        sections = Arrays.copyOf(sections, sections.length * 2);
+                    }
+                    sections[top++] = max;
+                    sections[top++] = end;
+                    sections[top++] = start;
+                    sections[top++] = max;
+                }
+            }
+            edges[e].setCoordArray(size == c.length ? c : Arrays.copyOf(result, size));
+        }
+    }
+
+    private static int furthest(Coordinate[] c, int start, int end) {
+        int max = start + 1;
+        double maxDistance = -1.0;
+        for (int i = start + 1; i < end; i++) {
+            double distance = Distance.pointToSegment(c[i], c[start], c[end]);
+            if (distance > maxDistance) {
+                max = i;
+                maxDistance = distance;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * A source segment in either direction.
+     */
+    private static class Segment {
+        private final Coordinate p;
+        private final Coordinate q;
+
+        Segment(Coordinate p, Coordinate q) {
+            boolean ordered = p.compareTo(q) <= 0;
+            this.p = ordered ? p : q;
+            this.q = ordered ? q : p;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment that = (Segment)o;
+            return p.equals2D(that.p) && q.equals2D(that.q);
+        }
+
+        @Override
+        public int hashCode() {
+            return p.hashCode() * 31 + q.hashCode();
+        }
+    }
+
+    /**
+     * The source segments still present and the shortcuts accepted so far.
+     */
+    private static class Index {
+        private final Coordinate[][] coords;
+        private final int[] offsets;
+        private final int[] segmentIds;
+        private final int[] first;
+        private final int[] owners;
+        private final int[] replaced; // the number of owners that have replaced each segment
+        private final BitSet current = new BitSet(); // the segments the shortcut replaces
+        private final STRtree tree;
+        private final int[] runEdge;
+        private final int[] runStart;
+        private final Quadtree shortcuts = new Quadtree();
+        private final LineIntersector li = new RobustLineIntersector();
+        private boolean crossed;
+
+        Index(Coordinate[][] coords, int[] offsets, int[] segmentIds, int[] first, int[] owners,
+              STRtree tree, int[] runEdge, int[] runStart) {
+            this.coords = coords;
+            this.offsets = offsets;
+            this.segmentIds = segmentIds;
+            this.first = first;
+            this.owners = owners;
+            this.replaced = new int[owners.length];
+            this.tree = tree;
+            this.runEdge = runEdge;
+            this.runStart = runStart;
+        }
+
+        /**
+         * Accept the shortcut from start to end of an edge if it crosses no other segment.
+         */
+        boolean accept(int edge, int start, int end) {
+            for (int i = start; i < end; i++) {
+                current.set(segmentIds[offsets[edge] + i]);
+            }
+            try {
+                if (crossesSource(coords[edge][start], coords[edge][end])
+                        || crossesShortcut(coords[edge][start], coords[edge][end])) {
+                    return false;
+                }
+            } finally {
+                current.clear();
+            }
+            for (int i = start; i < end; i++) {
+                replaced[segmentIds[offsets[edge] + i]]++;
+            }
+            shortcuts.insert(new Envelope(coords[edge][start], coords[edge][end]), new int[] {edge, start, end});
+            return true;
+        }
+
+        private boolean crossesSource(final Coordinate p, final Coordinate q) {
+            final Envelope env = new Envelope(p, q);
+            crossed = false;
+            tree.query(env, item -> {
+                if (crossed) {
+                    return;
+                }
+                int run = (Integer)item;
+                int e = runEdge[run];
+                Coordinate[] c = coords[e];
+                int last = Math.min(runStart[run] + RUN, c.length - 1);
+                for (int i = runStart[run]; i < last; i++) {
+                    int id = segmentIds[offsets[e] + i];
+                    if (first[id] != offsets[e] + i || current.get(id) || replaced[id] == owners[id]) {
+                        continue;
+                    }
+                    if (env.intersects(c[i], c[i + 1]) && crosses(p, q, c[i], c[i + 1])) {
+                        crossed = true;
+                        return;
+                    }
+                }
+            });
+            return crossed;
+        }
+
+        private boolean crossesShortcut(Coordinate p, Coordinate q) {
+            Envelope env = new Envelope(p, q);
+            @SuppressWarnings("unchecked")
+            List<int[]> candidates = shortcuts.query(env);
+            for (int[] shortcut: candidates) {
+                Coordinate[] c = coords[shortcut[0]];
+                Coordinate r = c[shortcut[1]];
+                Coordinate s = c[shortcut[2]];
+                if (env.intersects(r, s) && !along(shortcut) && crosses(p, q, r, s)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the accepted shortcut replaces only segments the current one replaces
+         */
+        private boolean along(int[] shortcut) {
+            int offset = offsets[shortcut[0]];
+            for (int i = shortcut[1]; i < shortcut[2]; i++) {
+                if (!current.get(segmentIds[offset + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Segments cross if they overlap or meet at a point interior to either of them, so
+         * segments sharing only an end point do not cross. A repeated vertex, a segment of no
+         * length, is collinear with any segment through it but only overlaps at a point.
+         */
+        private boolean crosses(Coordinate p, Coordinate q, Coordinate r, Coordinate s) {
+            li.computeIntersection(p, q, r, s);
+            if (!li.hasIntersection()) {
+                return false;
+            }
+            if (li.getIntersectionNum() == LineIntersector.COLLINEAR_INTERSECTION
+                    && !li.getIntersection(0).equals2D(li.getIntersection(1))) {
+                return true;
+            }
+            return li.isInteriorIntersection();
+        }
+    }
+}
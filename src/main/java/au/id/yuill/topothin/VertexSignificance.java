@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.algorithm.Distance;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Douglas-Peucker significance of the vertices of a LineString. The significance of a
+ * vertex is the largest distance tolerance at which Douglas-Peucker simplification keeps
+ * the vertex, so simplifying to any tolerance is a matter of keeping the vertices whose
+ * significance exceeds it. End points have infinite significance.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class VertexSignificance {
+
+    private VertexSignificance() {
+    }
+
+    public static double[] douglasPeucker(Coordinate[] coords) {
+        int n = coords.length;
+        double[] significance = new double[n];
+        significance[0] = Double.POSITIVE_INFINITY;
+        significance[n - 1] = Double.POSITIVE_INFINITY;
+        // each stack entry is a section of the line and the significance of the vertex that split it off
+        int[] sections = new int[2 * n];
+        double[] limits = new double[n];
+        int top = 0;
+        sections[0] = 0;
+        sections[1] = n - 1;
+        limits[0] = Double.POSITIVE_INFINITY;
+        top++;
+        while (top > 0) {
+            top--;
+            int start = sections[2 * top];
+            int end = sections[2 * top + 1];
+            double limit = limits[top];
+            if (end - start < 2) {
+                continue;
+            }
+            int max = start + 1;
+            double maxDistance = -1.0;
+            for (int i = start + 1; i < end; i++) {
+                double distance = Distance.pointToSegment(coords[i], coords[start], coords[end]);
+                if (distance > maxDistance) {
+                    max = i;
+                    maxDistance = distance;
+                }
+            }
+            // a vertex can not outlast the vertex whose selection created its section
+            double s = Math.min(maxDistance, limit);
+            significance[max] = s;
+            sections[2 * top] = start;
+            sections[2 * top + 1] = max;
+            limits[top++] = s;
+            sections[2 * top] = max;
+            sections[2 * top + 1] = end;
+            limits[top++] = s;
+        }
+        return significance;
+    }
+
+    /**
+     * Keep the vertices with significance greater than the tolerance. A closed line keeps
+     * at least its two most significant interior vertices so that it remains a valid ring.
+     */
+    public static Coordinate[] filter(Coordinate[] coords, double[] significance, double tolerance) {
+        int n = coords.length;
+        boolean[] keep = new boolean[n];
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (significance[i] > tolerance) {
+                keep[i] = true;
+                kept++;
+            }
+        }
+        if (n >= 4 && coords[0].equals2D(coords[n - 1])) {
+            while (kept < 4) {
+                int max = -1;
+                for (int i = 1; i < n - 1; i++) {
+                    if (!keep[i] && (max < 0 || significance[i] > significance[max])) {
+                        max = i;
+                    }
+                }
+                keep[max] = true;
+                kept++;
+            }
+        }
+        Coordinate[] result = new Coordinate[kept];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result[j++] = coords[i];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.InStream;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * A table read from a WKB record file, for running the full load, thin and save cycle
+ * without a database. The connection passed to the Table methods is not used and may be
+ * null, as may the reader and writer.
+ * <br><br>The file holds a header of a magic number and version followed by one record per
+ * row: the length of the rest of the record, the code and the name, each as a length and
+ * UTF-8 bytes with a length of -1 for null, and the length and bytes of the MultiPolygon WKB.
+ * Polygons are loaded as single member MultiPolygons. WkbFileWriter writes the format.
+ * <br><br>Reading maps the file in windows of up to 1GB, each starting at a record, and
+ * decodes the WKB directly from the mapped window. Saving writes the thinned geometry of every
+ * row of the table to the output file, replacing it.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class WkbFileTable implements Table {
+
+    private static final long WINDOW = 1L << 30;
+
+    private final String name;
+    private final Path source;
+    private final Path thinned;
+
+    /**
+     * @param source The file to load
+     * @param thinned The file thinned geometry is saved to
+     */
+    public WkbFileTable(String name, Path source, Path thinned) {
+        this.name = name;
+        this.source = source;
+        this.thinned = thinned;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public Path getThinned() {
+        return thinned;
+    }
+
+    @Override
+    public void populateTopoCoordData(Connection conn, WKBReader reader, TopoCoordData tcd) throws Exception {
+        if (reader == null) {
+            reader = new WKBReader(tcd.factory);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer window = map(channel, 0, size);
+            if (size < WkbFileWriter.HEADER_SIZE || window.getLong(0) != WkbFileWriter.MAGIC
+                    || window.getInt(8) != WkbFileWriter.VERSION) {
+                throw new IOException("Not a WKB record file: " + source);
+            }
+            long windowStart = 0;
+            long offset = WkbFileWriter.HEADER_SIZE;
+            BufferInStream in = new BufferInStream();
+            while (offset < size) {
+                if (offset + 4 > windowStart + window.limit()) {
+                    window = map(channel, offset, size);
+                    windowStart = offset;
+                }
+                int length = offset + 4 > size ? -1 : window.getInt((int)(offset - windowStart));
+                long end = offset + 4 + length;
+                if (length < 0 || end > size) {
+                    throw new IOException("Truncated record at " + offset + " in " + source);
+                }
+                if (end > windowStart + window.limit()) {
+                    if (offset == windowStart) {
+                        throw new IOException("Record at " + offset + " too large in " + source);
+                    }
+                    window = map(channel, offset, size);
+                    windowStart = offset;
+                }
+                ByteBuffer record = window.duplicate();
+                record.limit((int)(end - windowStart));
+                record.position((int)(offset + 4 - windowStart));
+                Row row = new Row();
+                row.table = this;
+                row.code = getString(record, offset);
+                row.name = getString(record, offset);
+                int wkbLength = record.remaining() < 4 ? -1 : record.getInt();
+                if (wkbLength < 0 || wkbLength > record.remaining()) {
+                    throw new IOException("Corrupt record at " + offset + " in " + source);
+                }
+                record.limit(record.position() + wkbLength);
+                in.buffer = record;
+                row.mp = toMultiPolygon(reader.read(in), tcd);
+                tcd.addRow(row);
+                offset = end;
+            }
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, size - offset));
+    }
+
+    /**
+     * @param offset The offset of the record in the file, for reporting a corrupt record
+     */
+    private String getString(ByteBuffer buffer, long offset) throws IOException {
+        int length = buffer.remaining() < 4 ? -2 : buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt record at " + offset + " in " + source);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MultiPolygon toMultiPolygon(Geometry geom, TopoCoordData tcd) {
+        if (geom instanceof Polygon) {
+            return tcd.factory.createMultiPolygon(new Polygon[] {(Polygon)geom});
+        }
+        return (MultiPolygon)geom;
+    }
+
+    @Override
+    public void saveThinnedGeometry(Connection conn, WKBWriter writer, TopoCoordData tcd) throws Exception {
+        if (writer == null) {
+            writer = new WKBWriter();
+        }
+        List<Row> rows = tcd.tableMap.get(this);
+        try (WkbFileWriter out = new WkbFileWriter(thinned)) {
+            if (rows != null) {
+                for (Row row: rows) {
+                    out.write(row.code, row.name, ByteBuffer.wrap(writer.write(row.mp)));
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * The WKB of a record, read in place from the mapped window.
+     */
+    private static class BufferInStream implements InStream {
+        ByteBuffer buffer;
+
+        @Override
+        public void read(byte[] buf) throws IOException {
+            if (buf.length > buffer.remaining()) {
+                throw new IOException("WKB extends past the end of its record");
+            }
+            buffer.get(buf);
+        }
+    }
+}
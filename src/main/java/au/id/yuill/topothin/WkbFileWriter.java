@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.io.WKBWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes rows to a WKB record file, the format read by WkbFileTable. As a ThinnedRowSink it
+ * can be given to TopoCoordData.writeThinnedPolygons() to write the thinned geometry of every
+ * row straight from the edges.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class WkbFileWriter implements ThinnedRowSink, Closeable {
+
+    static final long MAGIC = 0x544F504F574B4246L; // TOPOWKBF
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+    private WKBWriter writer;
+    private int count;
+
+    public WkbFileWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putLong(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    /**
+     * Write the current geometry of a row.
+     */
+    public void write(Row row) throws IOException {
+        if (writer == null) {
+            writer = new WKBWriter();
+        }
+        write(row.code, row.name, ByteBuffer.wrap(writer.write(row.mp)));
+    }
+
+    /**
+     * Write a record.
+     *
+     * @param wkb The MultiPolygon WKB from its position to its limit, which is left unchanged
+     */
+    public void write(String code, String name, ByteBuffer wkb) throws IOException {
+        byte[] codeBytes = code == null ? null : code.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        int length = stringSize(codeBytes) + stringSize(nameBytes) + 4 + wkb.remaining();
+        ensure(4 + length - wkb.remaining());
+        buffer.putInt(length);
+        putString(codeBytes);
+        putString(nameBytes);
+        buffer.putInt(wkb.remaining());
+        if (wkb.remaining() > buffer.remaining()) {
+            flush();
+        }
+        if (wkb.remaining() > buffer.remaining()) {
+            ByteBuffer source = wkb.duplicate();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } else {
+            buffer.put(wkb.duplicate());
+        }
+        count++;
+    }
+
+    @Override
+    public void save(Row row, ByteBuffer wkb) throws IOException {
+        write(row.code, row.name, wkb);
+    }
+
+    /**
+     * @return The number of records written
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private void putString(byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+            if (buffer.remaining() < bytes) {
+                throw new IOException("Record header of " + bytes + " bytes too large");
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
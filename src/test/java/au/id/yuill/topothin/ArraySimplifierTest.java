@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.simplify.VWSimplifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The array simplifiers give the same output as the JTS simplifiers: Douglas-Peucker as
+ * DefaultSimplifier, which uses TopologyPreservingSimplifier, and Visvalingam-Whyatt as
+ * VWSimplifier on lines that are not closed.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ArraySimplifierTest {
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+    private static List<InMemoryTable> tables;
+    private static List<LineString> edges;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        tables = TestData.tables(FACTORY, 10);
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        edges = new ArrayList<>();
+        for (Edge edge: tcd.edgeMap.values()) {
+            edges.add(FACTORY.createLineString(edge.getSourceCoordArray()));
+        }
+    }
+
+    @Test
+    public void douglasPeuckerEdges() {
+        douglasPeuckerEdges(0.02, 0.01);
+        douglasPeuckerEdges(0.2, 0.01);
+    }
+
+    private static void douglasPeuckerEdges(double lengthFactor, double maxDistanceTolerance) {
+        DefaultSimplifier jts = new DefaultSimplifier(lengthFactor, maxDistanceTolerance);
+        ArrayDouglasPeuckerSimplifier array = new ArrayDouglasPeuckerSimplifier(lengthFactor, maxDistanceTolerance);
+        int simplified = 0;
+        for (LineString edge: edges) {
+            Coordinate[] expected = jts.simplify(edge).getCoordinates();
+            assertArrayEquals(expected, array.simplify(edge).getCoordinates());
+            if (expected.length < edge.getNumPoints()) {
+                simplified++;
+            }
+        }
+        assertTrue(simplified > 0);
+    }
+
+    @Test
+    public void douglasPeuckerThinned() throws Exception {
+        TopoCoordData jts = TestData.load(new TopoCoordData(new DefaultSimplifier(), 0), tables);
+        TopoCoordData array = TestData.load(new TopoCoordData(new ArrayDouglasPeuckerSimplifier(), 0), tables);
+        for (TopoCoordData tcd: new TopoCoordData[] {jts, array}) {
+            tcd.findNodes();
+            tcd.createEdges();
+            tcd.simplifyEdges();
+            tcd.createThinnedPolygons();
+        }
+        assertEquals(TestData.geometry(jts), TestData.geometry(array));
+    }
+
+    @Test
+    public void visvalingamEdges() {
+        visvalingamEdges(0.02, 0.01);
+        visvalingamEdges(0.2, 0.01);
+    }
+
+    private static void visvalingamEdges(double lengthFactor, double maxDistanceTolerance) {
+        ArrayVisvalingamSimplifier array = new ArrayVisvalingamSimplifier(lengthFactor, maxDistanceTolerance);
+        int compared = 0;
+        for (LineString edge: edges) {
+            if (edge.isClosed()) {
+                continue;
+            }
+            double tolerance = ArraySimplifier.lengthScaledTolerance(edge.getCoordinates(), lengthFactor, maxDistanceTolerance);
+            Coordinate[] expected = VWSimplifier.simplify(edge, tolerance).getCoordinates();
+            assertArrayEquals(expected, array.simplify(edge).getCoordinates());
+            compared++;
+        }
+        assertTrue(compared > 0);
+    }
+
+    @Test
+    public void visvalingamClosedKeepsFour() {
+        Coordinate[] coords = new Coordinate[] {new Coordinate(0, 0), new Coordinate(1, 0),
+                new Coordinate(1, 0.001), new Coordinate(0.999, 0.002), new Coordinate(0, 0.001),
+                new Coordinate(0, 0)};
+        int[] kept = new int[coords.length];
+        assertEquals(4, new ArrayVisvalingamSimplifier(1.0, 1.0).simplify(coords, kept));
+        assertEquals(0, kept[0]);
+        assertEquals(coords.length - 1, kept[3]);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Coordinates are given dense ids in insertion order, found again through probing and
+ * growth of the index, and compared by value, or for a fixed precision model by grid step.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class CoordIndexTest {
+
+    @Test
+    public void idsKeptThroughResize() {
+        CoordIndex index = new CoordIndex(1);
+        int n = 300;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(i * n + j, index.add(lat(i), lon(j)));
+            }
+        }
+        assertEquals(n * n, index.size());
+        assertEquals(0, index.capacity() & (index.capacity() - 1));
+        assertTrue(index.capacity() >= n * n * 2);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int id = i * n + j;
+                assertEquals(id, index.get(lat(i), lon(j)));
+                assertEquals(id, index.add(lat(i), lon(j)));
+                assertEquals(lat(i), index.lat(id), 0.0);
+                assertEquals(lon(j), index.lon(id), 0.0);
+            }
+        }
+        assertEquals(n * n, index.size());
+        assertEquals(-1, index.get(lat(n), lon(0)));
+        assertEquals(-1, index.get(lat(0), lon(n)));
+    }
+
+    /**
+     * A regular grid, the worst case for a hash of the ordinates taken apart, still mostly
+     * sits in or next to its home slot.
+     */
+    @Test
+    public void gridProbesShort() {
+        CoordIndex index = new CoordIndex();
+        int n = 300;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                index.add(lat(i), lon(j));
+            }
+        }
+        long[] histogram = index.probeHistogram(8);
+        long total = 0;
+        for (long count: histogram) {
+            total += count;
+        }
+        assertEquals(n * n, total);
+        assertTrue(histogram[0] + histogram[1] > total * 0.8);
+        assertTrue(histogram[7] < total * 0.01);
+    }
+
+    @Test
+    public void comparedByValue() {
+        CoordIndex index = new CoordIndex();
+        int zero = index.add(0.0, 0.0);
+        assertEquals(zero, index.add(-0.0, 0.0));
+        assertEquals(zero, index.get(0.0, -0.0));
+        double lat = -30.123;
+        int id = index.add(lat, 140.0);
+        assertEquals(id + 1, index.add(Math.nextUp(lat), 140.0));
+        assertEquals(id + 2, index.add(lat, Math.nextDown(140.0)));
+        assertEquals(id, index.get(lat, 140.0));
+        // ordinates swapped are another coordinate
+        assertEquals(id + 3, index.add(140.0, lat));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void fixedIdsKeptThroughResize() {
+        CoordIndex index = new CoordIndex(new PrecisionModel(1e6));
+        assertTrue(index.isFixed());
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(i * n + j, index.add(lat(i), lon(j)));
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int id = i * n + j;
+                assertEquals(id, index.get(lat(i), lon(j)));
+                assertEquals(lat(i), index.lat(id), 1e-12);
+                assertEquals(lon(j), index.lon(id), 1e-12);
+            }
+        }
+        assertEquals(n * n, index.size());
+    }
+
+    @Test
+    public void fixedSnapsToGrid() {
+        assertFalse(new CoordIndex(new PrecisionModel()).isFixed());
+        assertFalse(new CoordIndex(new PrecisionModel(PrecisionModel.FLOATING_SINGLE)).isFixed());
+        CoordIndex index = new CoordIndex(new PrecisionModel(1000));
+        int id = index.add(-30.001, 140.002);
+        assertEquals(id, index.add(-30.0012, 140.0016));
+        assertEquals(id, index.get(-30.0008, 140.0024));
+        assertEquals(-1, index.get(-30.0016, 140.002));
+        assertEquals(-30.001, index.lat(id), 0.0);
+        assertEquals(140.002, index.lon(id), 0.0);
+        assertEquals(id + 1, index.add(-30.002, 140.002));
+        assertEquals(2, index.size());
+        try {
+            new CoordIndex(new PrecisionModel(1e8)).add(-30.0, 140.0);
+            fail("Ordinate beyond the int range added");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Rows added to a topology with a fixed precision model are snapped to its grid, dropping
+     * the repeated coordinates and collapsed rings this leaves, without changing the source.
+     */
+    @Test
+    public void fixedPrecisionRows() throws Exception {
+        GeometryFactory factory = new GeometryFactory();
+        Polygon square = factory.createPolygon(factory.createLinearRing(new Coordinate[] {
+                new Coordinate(0.0, 0.0), new Coordinate(0.0101, 0.0), new Coordinate(0.0104, 0.0),
+                new Coordinate(0.0101, 0.0098), new Coordinate(0.0, 0.01), new Coordinate(0.0, 0.0)}),
+                new LinearRing[] {factory.createLinearRing(new Coordinate[] {
+                        new Coordinate(0.004, 0.004), new Coordinate(0.0042, 0.0041), new Coordinate(0.0041, 0.0042),
+                        new Coordinate(0.004, 0.004)})});
+        Polygon speck = factory.createPolygon(new Coordinate[] {new Coordinate(0.02, 0.02),
+                new Coordinate(0.0202, 0.02), new Coordinate(0.0202, 0.0202), new Coordinate(0.02, 0.02)});
+        MultiPolygon source = factory.createMultiPolygon(new Polygon[] {square, speck});
+        MultiPolygon copy = (MultiPolygon)source.copy();
+        InMemoryTable table = new InMemoryTable("fixed");
+        table.add("square", null, source);
+        TopoCoordData tcd = TestData.load(new TopoCoordData(new DefaultSimplifier(), 0, new PrecisionModel(1000)),
+                Arrays.asList(table));
+        Row row = tcd.tableMap.get(table).get(0);
+        assertNotSame(source, row.mp);
+        assertTrue(copy.equalsExact(source));
+        assertEquals(1, row.mp.getNumGeometries());
+        Polygon snapped = (Polygon)row.mp.getGeometryN(0);
+        assertEquals(0, snapped.getNumInteriorRing());
+        assertArrayEquals(new Coordinate[] {new Coordinate(0.0, 0.0), new Coordinate(0.01, 0.0),
+                new Coordinate(0.01, 0.01), new Coordinate(0.0, 0.01), new Coordinate(0.0, 0.0)},
+                snapped.getExteriorRing().getCoordinates());
+    }
+
+    private static double lat(int i) {
+        return -30.0 + i * 0.001;
+    }
+
+    private static double lon(int j) {
+        return 140.0 + j * 0.001;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Edges stay reachable through any sequence of puts and removes, including removes from
+ * long probe runs of clustered and equal keys, and the views iterate the live entries.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class EdgeMapTest {
+
+    /**
+     * Random puts and removes of edges whose keys fall on a few slots, many sharing a key,
+     * checked against a HashMap after every operation.
+     */
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(7);
+        KeyedEdge[] edges = new KeyedEdge[500];
+        for (int i = 0; i < edges.length; i++) {
+            // keys clustered on a few home slots of any table size, some shared by other edges
+            edges[i] = new KeyedEdge(i, (long)random.nextInt(40) << (random.nextBoolean() ? 0 : 40));
+        }
+        EdgeMap map = new EdgeMap();
+        Map<Edge, Edge> expected = new HashMap<>();
+        for (int op = 0; op < 20000; op++) {
+            KeyedEdge edge = edges[random.nextInt(edges.length)];
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(edge), map.remove(edge));
+            } else {
+                KeyedEdge value = edges[random.nextInt(edges.length)];
+                assertSame(expected.put(edge, value), map.put(edge, value));
+            }
+            if (op % 97 == 0) {
+                assertSameEntries(expected, map, edges);
+            }
+        }
+        assertSameEntries(expected, map, edges);
+        for (KeyedEdge edge: edges) {
+            map.remove(edge);
+        }
+        assertEquals(0, map.size());
+        assertFalse(map.values().iterator().hasNext());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        EdgeMap map = new EdgeMap();
+        KeyedEdge[] edges = new KeyedEdge[100];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new KeyedEdge(i, i % 5);
+            map.put(edges[i], edges[i]);
+        }
+        // removing an entry moves the last into its place, which must still be visited
+        Set<Edge> visited = new HashSet<>();
+        for (Iterator<Edge> it = map.keySet().iterator(); it.hasNext(); ) {
+            KeyedEdge edge = (KeyedEdge)it.next();
+            assertTrue(visited.add(edge));
+            if (edge.id % 3 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(edges.length, visited.size());
+        for (KeyedEdge edge: edges) {
+            assertEquals(edge.id % 3 != 0, map.containsKey(edge));
+            assertSame(edge.id % 3 == 0 ? null : edge, map.get(edge));
+        }
+        for (Map.Entry<Edge, Edge> entry: map.entrySet()) {
+            entry.setValue(edges[0]);
+        }
+        for (KeyedEdge edge: edges) {
+            if (edge.id % 3 != 0) {
+                assertSame(edges[0], map.get(edge));
+            }
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(edges[1]));
+    }
+
+    private static void assertSameEntries(Map<Edge, Edge> expected, EdgeMap map, KeyedEdge[] edges) {
+        assertEquals(expected.size(), map.size());
+        for (KeyedEdge edge: edges) {
+            assertEquals(expected.containsKey(edge), map.containsKey(edge));
+            assertSame(expected.get(edge), map.get(edge));
+        }
+        Map<Edge, Edge> iterated = new HashMap<>();
+        for (Map.Entry<Edge, Edge> entry: map.entrySet()) {
+            assertNull(iterated.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, iterated);
+    }
+
+    /**
+     * An edge with the given key, equal only to itself.
+     */
+    private static class KeyedEdge extends Edge {
+        final int id;
+
+        KeyedEdge(int id, long key) {
+            super(null, null, key);
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj == this;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Loading and saving through JdbcPipeline with an in-memory H2 database.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class JdbcPipelineTest {
+
+    private static final String LOAD = "SELECT code, name, geom FROM cells ORDER BY id";
+    private static final String SAVE = "UPDATE cells SET geom_thin = ? WHERE code = ?";
+
+    private ExecutorService executor;
+    private Connection conn;
+    private InMemoryTable fine;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        conn = DriverManager.getConnection("jdbc:h2:mem:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE cells (id INT PRIMARY KEY, code VARCHAR(20), name VARCHAR(20),"
+                    + " geom VARBINARY, geom_thin VARBINARY)");
+        }
+        fine = TestData.tables(new GeometryFactory(), 8).get(0);
+        WKBWriter writer = new WKBWriter();
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO cells (id, code, name, geom) VALUES (?, ?, ?, ?)")) {
+            int id = 0;
+            for (Row row: fine.getSourceRows()) {
+                ps.setInt(1, id++);
+                ps.setString(2, row.code);
+                ps.setString(3, "name " + row.code);
+                ps.setBytes(4, writer.write(row.mp));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        conn.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void loadAndSave() throws Exception {
+        // small sizes so that fetches, the queue and batches all wrap
+        JdbcPipeline pipeline = new JdbcPipeline(executor, 10, 7, 5);
+        TopoCoordData tcd = new TopoCoordData();
+        assertEquals(fine.getSourceRows().size(), pipeline.load(conn, LOAD, fine, tcd));
+        List<Row> rows = tcd.tableMap.get(fine);
+        for (int i = 0; i < rows.size(); i++) {
+            Row source = fine.getSourceRows().get(i);
+            assertEquals(source.code, rows.get(i).code);
+            assertEquals("name " + source.code, rows.get(i).name);
+            assertTrue(source.mp.equalsExact(rows.get(i).mp));
+        }
+        assertTrue(conn.getAutoCommit());
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        assertEquals(rows.size(), pipeline.save(conn, SAVE, fine, tcd));
+        WKBReader reader = new WKBReader();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT code, geom_thin FROM cells ORDER BY id")) {
+            for (Row row: rows) {
+                assertTrue(rs.next());
+                assertEquals(row.code, rs.getString(1));
+                assertTrue(row.mp.equalsExact(reader.read(rs.getBytes(2))));
+            }
+        }
+    }
+
+    @Test
+    public void saveFromEdges() throws Exception {
+        JdbcPipeline pipeline = new JdbcPipeline(executor, 10, 7, 5);
+        TopoCoordData tcd = new TopoCoordData();
+        pipeline.load(conn, LOAD, fine, tcd);
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        assertEquals(fine.getSourceRows().size(), pipeline.saveFromEdges(conn, SAVE, fine, tcd));
+        tcd.createThinnedPolygons();
+        WKBReader reader = new WKBReader();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT geom_thin FROM cells ORDER BY id")) {
+            for (Row row: tcd.tableMap.get(fine)) {
+                assertTrue(rs.next());
+                assertTrue(row.mp.equalsExact(reader.read(rs.getBytes(1))));
+            }
+        }
+    }
+
+    @Test
+    public void loadFailure() throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE cells SET geom = X'0163000000' WHERE id = 20");
+        }
+        // rows after the corrupt one take a minute to decode unless cancelled
+        final List<Future<?>> submitted = Collections.synchronizedList(new ArrayList<Future<?>>());
+        ExecutorService tracking = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+                RunnableFuture<T> future = super.newTaskFor(submitted.size() <= 20 ? callable : () -> {
+                    Thread.sleep(60000);
+                    return callable.call();
+                });
+                submitted.add(future);
+                return future;
+            }
+        };
+        try {
+            JdbcPipeline pipeline = new JdbcPipeline(tracking, 10, 7, 5);
+            TopoCoordData tcd = new TopoCoordData();
+            try {
+                pipeline.load(conn, LOAD, fine, tcd);
+                fail("Corrupt WKB loaded");
+            } catch (ParseException e) {
+                // expected
+            }
+            assertEquals(20, tcd.tableMap.get(fine).size());
+            assertTrue(conn.getAutoCommit());
+            assertTrue(submitted.size() > 21);
+            for (Future<?> future: submitted) {
+                assertTrue(future.isDone());
+            }
+        } finally {
+            tracking.shutdownNow();
+        }
+    }
+
+    @Test
+    public void queryFailure() throws Exception {
+        JdbcPipeline pipeline = new JdbcPipeline(executor);
+        try {
+            pipeline.load(conn, "SELECT code, name, geom FROM missing", fine, new TopoCoordData());
+            fail("Query of a missing table succeeded");
+        } catch (SQLException e) {
+            // expected
+        }
+        assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    public void saveFailure() throws Exception {
+        JdbcPipeline pipeline = new JdbcPipeline(executor, 10, 7, 5);
+        TopoCoordData tcd = new TopoCoordData();
+        pipeline.load(conn, LOAD, fine, tcd);
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        try {
+            pipeline.save(conn, "UPDATE cells SET geom_thin = ? WHERE code = CAST(? AS INT)", fine, tcd);
+            fail("Save with a failing statement succeeded");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The SORT node engine finds the same nodes as MEMBERSHIP, serially and with an executor.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class NodeEngineTest {
+
+    private static ExecutorService executor;
+    private static List<InMemoryTable> tables;
+    private static Set<Coordinate> expected;
+    private static TopoCoordData unlayered;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        tables = TestData.tables(new GeometryFactory(), 12);
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.findNodes();
+        expected = TestData.nodes(tcd);
+        tcd.createEdges();
+        unlayered = tcd;
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void sortSerial() throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.setNodeEngine(TopoCoordData.NodeEngine.SORT);
+        tcd.findNodes();
+        assertEquals(expected, TestData.nodes(tcd));
+    }
+
+    @Test
+    public void sortExecutor() throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.setNodeEngine(TopoCoordData.NodeEngine.SORT);
+        tcd.findNodes(executor);
+        assertEquals(expected, TestData.nodes(tcd));
+    }
+
+    @Test
+    public void membershipExecutor() throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.findNodes(executor);
+        assertEquals(expected, TestData.nodes(tcd));
+    }
+
+    @Test
+    public void nudgedVerticesAreDistinct() throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        TopoCoordData withoutNudged = TestData.load(tables.subList(0, 3));
+        assertTrue(tcd.store.vertexCount() > withoutNudged.store.vertexCount());
+    }
+
+    /**
+     * Nodes of tables in layers are found from the membership of each layer whatever the
+     * engine, so the coarse rows are made of fewer edges than without layers.
+     */
+    @Test
+    public void layers() throws Exception {
+        Map<String, String> expected = null;
+        for (TopoCoordData.NodeEngine engine: TopoCoordData.NodeEngine.values()) {
+            for (boolean parallel: new boolean[] {false, true}) {
+                TopoCoordData tcd = new TopoCoordData();
+                tcd.setNodeEngine(engine);
+                tcd.setLayer(tables.get(1), 1);
+                TestData.load(tcd, tables);
+                if (parallel) {
+                    tcd.findNodes(executor);
+                    tcd.createEdges(executor);
+                } else {
+                    tcd.findNodes();
+                    tcd.createEdges();
+                }
+                tcd.simplifyEdges();
+                tcd.createThinnedPolygons();
+                assertTrue(edgeCount(tcd, tables.get(1)) < edgeCount(unlayered, tables.get(1)));
+                if (expected == null) {
+                    expected = TestData.geometry(tcd);
+                } else {
+                    assertEquals(engine + " " + parallel, expected, TestData.geometry(tcd));
+                }
+            }
+        }
+    }
+
+    private static int edgeCount(TopoCoordData tcd, Table table) {
+        int count = 0;
+        for (Row row: tcd.tableMap.get(table)) {
+            for (TopoPoly poly: row.topoPolyList) {
+                count += poly.exterior.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Coordinates added singly may interleave the pairs of their rings, so SORT falls back.
+     */
+    @Test
+    public void sortNotUsedAfterAddCoordinate() throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        assertTrue(TestData.load(tables).store.buildMembershipSorted(false));
+        GeometryFactory factory = new GeometryFactory();
+        LineString a = factory.createLineString(new Coordinate[] {new Coordinate(130, -30),
+                new Coordinate(130, -29), new Coordinate(131, -29), new Coordinate(130, -30)});
+        LineString b = factory.createLineString(new Coordinate[] {new Coordinate(130, -30),
+                new Coordinate(130, -29), new Coordinate(129, -29), new Coordinate(130, -30)});
+        for (int i = 0; i < a.getNumPoints(); i++) {
+            tcd.addCoordinate(a.getCoordinateN(i), a);
+            tcd.addCoordinate(b.getCoordinateN(i), b);
+        }
+        assertFalse(tcd.store.buildMembershipSorted(false));
+        tcd.setNodeEngine(TopoCoordData.NodeEngine.SORT);
+        tcd.findNodes(executor);
+        assertTrue(TestData.nodes(tcd).containsAll(expected));
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * findNodes() and createEdges() with an executor give the same nodes, edges and ring edges
+ * as the serial path, as do rows added by several threads at once.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ParallelTopologyTest {
+
+    private static ExecutorService executor;
+    private static List<InMemoryTable> tables;
+    private static TopoCoordData serial;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        tables = TestData.tables(new GeometryFactory(), 12);
+        serial = TestData.load(tables);
+        serial.findNodes();
+        serial.createEdges();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void fixedThreadPool() throws Exception {
+        assertSameTopology(executor);
+    }
+
+    @Test
+    public void forkJoinPool() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertSameTopology(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Rows of every table are added in chunks by tasks running at once, then nodes are found
+     * with the executor while the serial path is compared.
+     */
+    @Test
+    public void concurrentAddRow() throws Exception {
+        final TopoCoordData parallel = new TopoCoordData();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (InMemoryTable table: tables) {
+            List<Row> rows = table.getSourceRows();
+            for (int start = 0; start < rows.size(); start += 7) {
+                final List<Row> chunk = rows.subList(start, Math.min(rows.size(), start + 7));
+                tasks.add(() -> {
+                    for (Row source: chunk) {
+                        parallel.addRow(copy(source));
+                    }
+                    return null;
+                });
+            }
+        }
+        for (Future<Void> future: executor.invokeAll(tasks)) {
+            future.get();
+        }
+        for (InMemoryTable table: tables) {
+            assertEquals(table.getSourceRows().size(), parallel.tableMap.get(table).size());
+        }
+        parallel.findNodes(executor);
+        parallel.createEdges();
+        // rows are added in no fixed order, so an edge may be stored in either direction
+        assertEquals(TestData.nodes(serial), TestData.nodes(parallel));
+        assertEquals(undirectedEdges(serial), undirectedEdges(parallel));
+        for (InMemoryTable table: tables) {
+            assertEquals(rings(serial, table), rings(parallel, table));
+        }
+    }
+
+    /**
+     * A row that cannot be reassembled is reported by both paths, while every other row is
+     * thinned.
+     */
+    @Test
+    public void thinnedPolygonFailures() throws Exception {
+        for (boolean parallel: new boolean[] {false, true}) {
+            TopoCoordData tcd = TestData.load(tables);
+            tcd.findNodes();
+            tcd.createEdges();
+            tcd.simplifyEdges();
+            Row broken = tcd.tableMap.get(tables.get(0)).get(5);
+            RingEdge first = broken.topoPolyList.get(0).exterior.get(0);
+            first.forward = !first.forward;
+            List<Row> reported = new ArrayList<>();
+            List<PhaseStats> phases = new ArrayList<>();
+            tcd.addListener(new TopoListener() {
+                @Override
+                public void rowFailed(Row row, Exception e) {
+                    reported.add(row);
+                }
+
+                @Override
+                public void phaseCompleted(PhaseStats stats) {
+                    phases.add(stats);
+                }
+            });
+            Map<Row, Exception> failures = parallel ? tcd.createThinnedPolygons(executor) : tcd.createThinnedPolygons();
+            assertEquals(Collections.singleton(broken), failures.keySet());
+            assertEquals(Collections.singletonList(broken), reported);
+            assertSame(tables.get(0).getSourceRows().get(5).mp, broken.mp);
+            assertEquals(1, phases.get(0).failures);
+            assertEquals(1, phases.get(0).tables.get(tables.get(0)).failures);
+            int thinned = 0;
+            for (List<Row> rows: tcd.tableMap.values()) {
+                for (Row row: rows) {
+                    if (row != broken && row.mp.getNumPoints() < source(row).getNumPoints()) {
+                        thinned++;
+                    }
+                }
+            }
+            assertTrue(thinned > 0);
+        }
+    }
+
+    private static MultiPolygon source(Row row) {
+        for (Row source: ((InMemoryTable)row.table).getSourceRows()) {
+            if (source.code.equals(row.code)) {
+                return source.mp;
+            }
+        }
+        return null;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowWithoutTableRejected() {
+        Row row = copy(tables.get(0).getSourceRows().get(0));
+        row.table = null;
+        new TopoCoordData().addRow(row);
+    }
+
+    private static Row copy(Row source) {
+        Row row = new Row();
+        row.table = source.table;
+        row.code = source.code;
+        row.name = source.name;
+        row.mp = source.mp;
+        return row;
+    }
+
+    private static void assertSameTopology(ExecutorService executor) throws Exception {
+        TopoCoordData parallel = TestData.load(tables);
+        parallel.findNodes(executor);
+        parallel.createEdges(executor);
+        assertEquals(TestData.nodes(serial), TestData.nodes(parallel));
+        assertEquals(edges(serial), edges(parallel));
+        for (InMemoryTable table: tables) {
+            assertEquals(ringEdges(serial, table), ringEdges(parallel, table));
+        }
+    }
+
+    /**
+     * @return The source coordinates of each edge, in the direction it was stored
+     */
+    private static Set<String> edges(TopoCoordData tcd) {
+        Set<String> edges = new TreeSet<>();
+        for (Edge edge: tcd.edgeMap.values()) {
+            edges.add(Arrays.toString(edge.getSourceCoordArray()));
+        }
+        return edges;
+    }
+
+    /**
+     * @return The source coordinates of each edge, in the lesser of its two directions
+     */
+    private static Set<String> undirectedEdges(TopoCoordData tcd) {
+        Set<String> edges = new TreeSet<>();
+        for (Edge edge: tcd.edgeMap.values()) {
+            Coordinate[] coords = edge.getSourceCoordArray().clone();
+            String forward = Arrays.toString(coords);
+            Collections.reverse(Arrays.asList(coords));
+            String reverse = Arrays.toString(coords);
+            edges.add(forward.compareTo(reverse) <= 0 ? forward : reverse);
+        }
+        return edges;
+    }
+
+    /**
+     * @return The edges of each ring of each row of the table, each as its coordinates along
+     * the ring, with the rings sorted
+     */
+    private static Set<String> rings(TopoCoordData tcd, Table table) {
+        Set<String> rings = new TreeSet<>();
+        for (Row row: tcd.tableMap.get(table)) {
+            for (TopoPoly poly: row.topoPolyList) {
+                List<List<RingEdge>> ringList = new ArrayList<>();
+                ringList.add(poly.exterior);
+                ringList.addAll(poly.interiorList);
+                for (List<RingEdge> ring: ringList) {
+                    StringBuilder buf = new StringBuilder(row.code);
+                    for (RingEdge ringEdge: ring) {
+                        Coordinate[] coords = ringEdge.edge.getSourceCoordArray().clone();
+                        if (!ringEdge.forward) {
+                            Collections.reverse(Arrays.asList(coords));
+                        }
+                        buf.append(' ').append(Arrays.toString(coords));
+                    }
+                    rings.add(buf.toString());
+                }
+            }
+        }
+        return rings;
+    }
+
+    /**
+     * @return The edges of each ring of each row of the table with their direction, in order
+     */
+    private static List<String> ringEdges(TopoCoordData tcd, Table table) {
+        List<String> ringEdges = new ArrayList<>();
+        for (Row row: tcd.tableMap.get(table)) {
+            for (TopoPoly poly: row.topoPolyList) {
+                List<List<RingEdge>> rings = new ArrayList<>();
+                rings.add(poly.exterior);
+                rings.addAll(poly.interiorList);
+                for (List<RingEdge> ring: rings) {
+                    StringBuilder buf = new StringBuilder(row.code);
+                    for (RingEdge ringEdge: ring) {
+                        assertSame(ringEdge.edge, tcd.edgeMap.get(ringEdge.edge));
+                        buf.append(ringEdge.forward ? " +" : " -");
+                        buf.append(Arrays.toString(ringEdge.edge.getSourceCoordArray()));
+                    }
+                    ringEdges.add(buf.toString());
+                }
+            }
+        }
+        return ringEdges;
+    }
+}
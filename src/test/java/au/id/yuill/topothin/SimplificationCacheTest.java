@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Cached simplifications give the same polygons as simplifying again, are kept between runs
+ * in a file, and are not reused for other coordinates, other simplifiers or other file
+ * versions.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class SimplificationCacheTest {
+
+    private static final Simplifier SIMPLIFIER = new ArrayDouglasPeuckerSimplifier(0.2, 0.01);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<InMemoryTable> tables = TestData.tables(new GeometryFactory(), 10);
+
+    @Test
+    public void hitsGiveSameGeometry() throws Exception {
+        Map<String, String> expected = run(null);
+        SimplificationCache cache = new SimplificationCache(SIMPLIFIER.getIdentity(), 100000);
+        assertEquals(expected, run(cache));
+        int edges = cache.size();
+        assertEquals(0, cache.getHits());
+        assertEquals(edges, cache.getMisses());
+        Path path = folder.getRoot().toPath().resolve("cache");
+        cache.write(path);
+        SimplificationCache read = SimplificationCache.read(path, SIMPLIFIER.getIdentity(), 100000);
+        assertEquals(edges, read.size());
+        assertEquals(expected, run(read));
+        assertEquals(edges, read.getHits());
+        assertEquals(0, read.getMisses());
+    }
+
+    @Test
+    public void otherCoordinatesMiss() {
+        SimplificationCache cache = new SimplificationCache(SIMPLIFIER.getIdentity(), 10);
+        Coordinate[] coords = line(0.0);
+        cache.put(coords, new Coordinate[] {coords[0], coords[2], coords[4]});
+        Coordinate[] same = line(0.0);
+        assertArrayEquals(new Coordinate[] {same[0], same[2], same[4]}, cache.get(same));
+        assertNull(cache.get(line(1e-9)));
+        assertNull(cache.get(new Coordinate[] {coords[0], coords[1], coords[2]}));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void resultNotSubsequenceNotCached() {
+        SimplificationCache cache = new SimplificationCache(SIMPLIFIER.getIdentity(), 10);
+        Coordinate[] coords = line(0.0);
+        cache.put(coords, new Coordinate[] {coords[0], new Coordinate(1.5, 0.5), coords[4]});
+        cache.put(coords, new Coordinate[] {coords[1], coords[4]});
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedDropped() {
+        SimplificationCache cache = new SimplificationCache(SIMPLIFIER.getIdentity(), 2);
+        Coordinate[][] lines = {line(0.0), line(1.0), line(2.0)};
+        for (Coordinate[] coords: lines) {
+            cache.put(coords, new Coordinate[] {coords[0], coords[4]});
+        }
+        assertEquals(2, cache.size());
+        assertNull(cache.get(lines[0]));
+        assertEquals(2, cache.get(lines[1]).length);
+        assertEquals(2, cache.get(lines[2]).length);
+    }
+
+    /**
+     * An entry found by the fingerprint of one line but recorded for another, as on a
+     * fingerprint collision, is a miss.
+     */
+    @Test
+    public void collisionMisses() throws Exception {
+        Coordinate[] coords = line(0.0);
+        Coordinate[] other = line(1.0);
+        Path path = folder.getRoot().toPath().resolve("cache");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            writeHeader(out, 2, SIMPLIFIER.getIdentity(), 1);
+            out.writeLong(SimplificationCache.key(coords));
+            out.writeInt(other.length);
+            out.writeDouble(other[0].x);
+            out.writeDouble(other[0].y);
+            out.writeDouble(other[4].x);
+            out.writeDouble(other[4].y);
+            out.writeInt(2);
+            out.writeInt(0);
+            out.writeInt(4);
+        }
+        SimplificationCache cache = SimplificationCache.read(path, SIMPLIFIER.getIdentity(), 10);
+        assertEquals(1, cache.size());
+        assertNull(cache.get(coords));
+    }
+
+    @Test
+    public void otherIdentityOrVersionEmpty() throws Exception {
+        SimplificationCache cache = new SimplificationCache(SIMPLIFIER.getIdentity(), 10);
+        Coordinate[] coords = line(0.0);
+        cache.put(coords, new Coordinate[] {coords[0], coords[4]});
+        Path path = folder.getRoot().toPath().resolve("cache");
+        cache.write(path);
+        assertEquals(1, SimplificationCache.read(path, SIMPLIFIER.getIdentity(), 10).size());
+        assertEquals(0, SimplificationCache.read(path, new DefaultSimplifier().getIdentity(), 10).size());
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            writeHeader(out, 1, SIMPLIFIER.getIdentity(), 0);
+        }
+        assertEquals(0, SimplificationCache.read(path, SIMPLIFIER.getIdentity(), 10).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherSimplifierRejected() {
+        new TopoCoordData(new DefaultSimplifier(), 0)
+                .setSimplificationCache(new SimplificationCache(SIMPLIFIER.getIdentity(), 10));
+    }
+
+    private Map<String, String> run(SimplificationCache cache) throws Exception {
+        TopoCoordData tcd = TestData.load(new TopoCoordData(SIMPLIFIER, 0), tables);
+        tcd.setSimplificationCache(cache);
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        return TestData.geometry(tcd);
+    }
+
+    private static Coordinate[] line(double offset) {
+        return new Coordinate[] {new Coordinate(offset, 0.0), new Coordinate(1.0, 0.1), new Coordinate(2.0, 0.0),
+                new Coordinate(3.0, 0.1), new Coordinate(4.0, 0.0)};
+    }
+
+    private static void writeHeader(DataOutputStream out, int version, String identity, int count) throws IOException {
+        out.writeLong(0x544F504F43414348L);
+        out.writeInt(version);
+        out.writeUTF(identity);
+        out.writeInt(count);
+    }
+}
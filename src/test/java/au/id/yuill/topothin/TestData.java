@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generated tables for tests. The fine table is an n by n grid of cells whose sides are
+ * jittered lines shared with their neighbours, some with a hole filled by a row of the
+ * islands table. The coarse table covers the grid with blocks of 2 by 2 cells, some with a
+ * detached island of their own. The nudged table covers the first columns of the grid with
+ * cells that have every third vertex of their sides moved one ulp, so they share only some
+ * vertices with the fine cells.
+ *
+ * @version 1.0
+ * @author agent
+ */
+final class TestData {
+
+    static final double SIZE = 0.01;
+    static final int STEPS = 8;
+
+    private TestData() {
+    }
+
+    static List<InMemoryTable> tables(GeometryFactory factory, int n) {
+        InMemoryTable fine = new InMemoryTable("fine");
+        InMemoryTable coarse = new InMemoryTable("coarse");
+        InMemoryTable islands = new InMemoryTable("islands");
+        InMemoryTable nudged = new InMemoryTable("nudged");
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                LinearRing shell = factory.createLinearRing(block(i, j, i + 1, j + 1, false));
+                Polygon cell;
+                if ((i * 7 + j * 3) % 11 == 0) {
+                    double cx = 140 + (i + 0.5) * SIZE;
+                    double cy = -30 + (j + 0.5) * SIZE;
+                    LinearRing hole = factory.createLinearRing(circle(cx, cy, SIZE * 0.2, 24, true));
+                    cell = factory.createPolygon(shell, new LinearRing[] {hole});
+                    islands.add("i" + i + "_" + j, null, factory.createMultiPolygon(new Polygon[] {
+                            factory.createPolygon(circle(cx, cy, SIZE * 0.2, 24, false))}));
+                } else {
+                    cell = factory.createPolygon(shell);
+                }
+                fine.add("f" + i + "_" + j, null, factory.createMultiPolygon(new Polygon[] {cell}));
+                if (i < n / 2) {
+                    nudged.add("n" + i + "_" + j, null, factory.createMultiPolygon(new Polygon[] {
+                            factory.createPolygon(block(i, j, i + 1, j + 1, true))}));
+                }
+            }
+        }
+        for (int i = 0; i < n; i += 2) {
+            for (int j = 0; j < n; j += 2) {
+                List<Polygon> polys = new ArrayList<>();
+                polys.add(factory.createPolygon(block(i, j, Math.min(n, i + 2), Math.min(n, j + 2), false)));
+                if ((i + j) % 6 == 0) {
+                    polys.add(factory.createPolygon(circle(139.9 - i * SIZE, -30 + j * SIZE, SIZE * 0.3, 20, false)));
+                }
+                coarse.add("c" + i + "_" + j, null, factory.createMultiPolygon(polys.toArray(new Polygon[polys.size()])));
+            }
+        }
+        List<InMemoryTable> tables = new ArrayList<>();
+        tables.add(fine);
+        tables.add(coarse);
+        tables.add(islands);
+        tables.add(nudged);
+        return tables;
+    }
+
+    static TopoCoordData load(List<InMemoryTable> tables) throws Exception {
+        return load(new TopoCoordData(), tables);
+    }
+
+    static TopoCoordData load(TopoCoordData tcd, List<InMemoryTable> tables) throws Exception {
+        for (InMemoryTable table: tables) {
+            table.populateTopoCoordData(null, null, tcd);
+        }
+        return tcd;
+    }
+
+    static Set<Coordinate> nodes(TopoCoordData tcd) {
+        Set<Coordinate> nodes = new HashSet<>();
+        for (int v = tcd.store.nextNode(0); v >= 0; v = tcd.store.nextNode(v + 1)) {
+            nodes.add(new Coordinate(tcd.store.lon(v), tcd.store.lat(v)));
+        }
+        return nodes;
+    }
+
+    /**
+     * @return The normalized geometry of each row by table and code
+     */
+    static Map<String, String> geometry(TopoCoordData tcd) {
+        Map<String, String> geometry = new TreeMap<>();
+        for (List<Row> rows: tcd.tableMap.values()) {
+            for (Row row: rows) {
+                Geometry mp = row.mp.copy();
+                mp.normalize();
+                geometry.put(row.table + "/" + row.code, mp.toText());
+            }
+        }
+        return geometry;
+    }
+
+    private static double jitter(int a, int b, int c) {
+        long h = a * 73856093L ^ b * 19349663L ^ c * 83492791L;
+        h ^= h >>> 13;
+        h *= 0x5bd1e995L;
+        h ^= h >>> 15;
+        return ((h & 0xffff) / 65535.0 - 0.5) * SIZE * 0.06;
+    }
+
+    /**
+     * @return Step s of the side from grid point (i, j) along x if horizontal, otherwise along y
+     */
+    private static Coordinate side(int i, int j, int s, boolean horizontal, boolean nudge) {
+        if (s == STEPS) {
+            return horizontal ? side(i + 1, j, 0, true, nudge) : side(i, j + 1, 0, false, nudge);
+        }
+        double x = 140 + i * SIZE;
+        double y = -30 + j * SIZE;
+        if (s > 0) {
+            if (horizontal) {
+                x += s * SIZE / STEPS;
+                y += jitter(i, j, s);
+            } else {
+                x += jitter(i + 1000, j, s);
+                y += s * SIZE / STEPS;
+            }
+            if (nudge && s % 3 == 1) {
+                x = Math.nextUp(x);
+            }
+        }
+        return new Coordinate(x, y);
+    }
+
+    private static Coordinate[] block(int x0, int y0, int x1, int y1, boolean nudge) {
+        List<Coordinate> coords = new ArrayList<>();
+        for (int i = x0; i < x1; i++) {
+            for (int s = 0; s < STEPS; s++) {
+                coords.add(side(i, y0, s, true, nudge));
+            }
+        }
+        for (int j = y0; j < y1; j++) {
+            for (int s = 0; s < STEPS; s++) {
+                coords.add(side(x1, j, s, false, nudge));
+            }
+        }
+        for (int i = x1 - 1; i >= x0; i--) {
+            for (int s = STEPS; s > 0; s--) {
+                coords.add(side(i, y1, s, true, nudge));
+            }
+        }
+        for (int j = y1 - 1; j >= y0; j--) {
+            for (int s = STEPS; s > 0; s--) {
+                coords.add(side(x0, j, s, false, nudge));
+            }
+        }
+        coords.add(new Coordinate(coords.get(0)));
+        return coords.toArray(new Coordinate[coords.size()]);
+    }
+
+    private static Coordinate[] circle(double cx, double cy, double r, int n, boolean reverse) {
+        Coordinate[] coords = new Coordinate[n + 1];
+        for (int k = 0; k < n; k++) {
+            double a = (reverse ? -2 : 2) * Math.PI * k / n;
+            coords[k] = new Coordinate(cx + r * Math.cos(a), cy + r * Math.sin(a));
+        }
+        coords[n] = new Coordinate(coords[0]);
+        return coords;
+    }
+}
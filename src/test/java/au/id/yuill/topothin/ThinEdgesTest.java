@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Thinning to a tolerance keeps every ring valid, even a ring of two edges whose interior
+ * vertices all fall within the tolerance.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ThinEdgesTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    /**
+     * A thin lens between two nodes, below it a square sharing its lower side, so the lens
+     * is a ring of two edges each with a single interior vertex well within the tolerance.
+     */
+    @Test
+    public void twoEdgeRing() throws Exception {
+        InMemoryTable table = new InMemoryTable("lens");
+        table.add("lens", "lens", multi(new Coordinate(0.0, 0.0), new Coordinate(1.0, 0.001), new Coordinate(2.0, 0.0),
+                new Coordinate(1.0, -0.001), new Coordinate(0.0, 0.0)));
+        table.add("square", "square", multi(new Coordinate(0.0, 0.0), new Coordinate(1.0, -0.001),
+                new Coordinate(2.0, 0.0), new Coordinate(2.0, -1.0), new Coordinate(0.0, -1.0), new Coordinate(0.0, 0.0)));
+        TopoCoordData tcd = TestData.load(Arrays.asList(table));
+        tcd.findNodes();
+        tcd.createEdges();
+        assertEquals(3, tcd.edgeMap.size());
+        tcd.thinEdges(0.01);
+        assertTrue(tcd.createThinnedPolygons().isEmpty());
+        Row lens = tcd.tableMap.get(table).get(0);
+        assertEquals("lens", lens.code);
+        assertTrue(lens.mp.isValid());
+        assertEquals(5, lens.mp.getNumPoints());
+        Row square = tcd.tableMap.get(table).get(1);
+        assertTrue(square.mp.isValid());
+        assertEquals(6, square.mp.getNumPoints());
+        assertTrue(lens.mp.intersection(square.mp).getArea() == 0.0);
+    }
+
+    private MultiPolygon multi(Coordinate... ring) {
+        return factory.createMultiPolygon(new Polygon[] {factory.createPolygon(ring)});
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The WKB written straight from the edges of each row is byte for byte the WKB JTS writes
+ * for the polygons createThinnedPolygons() builds, in either byte order, and a collapsed
+ * ring is rejected as LinearRing rejects it.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class ThinnedWkbWriterTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @Test
+    public void matchesWkbWriter() throws Exception {
+        TopoCoordData tcd = topology(TestData.tables(factory, 10).subList(0, 3));
+        tcd.simplifyEdges();
+        assertMatches(tcd, ByteOrderValues.BIG_ENDIAN);
+        assertMatches(tcd, ByteOrderValues.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Unsimplified rows, and a ring large enough to outgrow the initial buffer.
+     */
+    @Test
+    public void matchesWkbWriterUnsimplified() throws Exception {
+        InMemoryTable large = new InMemoryTable("large");
+        Coordinate[] ring = new Coordinate[2001];
+        for (int i = 0; i < 2000; i++) {
+            double angle = 2 * Math.PI * i / 2000;
+            ring[i] = new Coordinate(150 + Math.cos(angle), -30 + Math.sin(angle));
+        }
+        ring[2000] = ring[0];
+        large.add("circle", null, factory.createMultiPolygon(new Polygon[] {factory.createPolygon(ring)}));
+        List<InMemoryTable> tables = new ArrayList<>(TestData.tables(factory, 6).subList(0, 3));
+        tables.add(large);
+        TopoCoordData tcd = topology(tables);
+        assertMatches(tcd, ByteOrderValues.BIG_ENDIAN);
+        assertMatches(tcd, ByteOrderValues.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void writeThinnedPolygons() throws Exception {
+        TopoCoordData tcd = topology(TestData.tables(factory, 10).subList(0, 3));
+        tcd.simplifyEdges();
+        final List<byte[]> written = new ArrayList<>();
+        tcd.writeThinnedPolygons((row, wkb) -> {
+            byte[] bytes = new byte[wkb.remaining()];
+            wkb.duplicate().get(bytes);
+            written.add(bytes);
+        });
+        WKBWriter jts = new WKBWriter();
+        int r = 0;
+        for (List<Row> rows: tcd.tableMap.values()) {
+            for (Row row: rows) {
+                assertArrayEquals(row.code, jts.write(tcd.createThinnedPolygon(row)), written.get(r++));
+            }
+        }
+        assertEquals(r, written.size());
+    }
+
+    @Test
+    public void collapsedRingRejected() throws Exception {
+        InMemoryTable table = new InMemoryTable("lens");
+        table.add("lens", null, factory.createMultiPolygon(new Polygon[] {factory.createPolygon(new Coordinate[] {
+                new Coordinate(0, 0), new Coordinate(1, 0.001), new Coordinate(2, 0),
+                new Coordinate(1, -0.001), new Coordinate(0, 0)})}));
+        table.add("square", null, factory.createMultiPolygon(new Polygon[] {factory.createPolygon(new Coordinate[] {
+                new Coordinate(0, 0), new Coordinate(1, -0.001), new Coordinate(2, 0),
+                new Coordinate(2, -1), new Coordinate(0, -1), new Coordinate(0, 0)})}));
+        TopoCoordData tcd = topology(Arrays.asList(table));
+        for (Edge edge: tcd.edgeMap.values()) {
+            Coordinate[] c = edge.getSourceCoordArray();
+            edge.setCoordArray(c.length == 3 ? new Coordinate[] {c[0], c[2]} : c);
+        }
+        Row lens = tcd.tableMap.get(table).get(0);
+        try {
+            new ThinnedWkbWriter().write(lens);
+            fail("Collapsed ring written");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid number of points in LinearRing"));
+        }
+    }
+
+    private static TopoCoordData topology(List<InMemoryTable> tables) throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        return tcd;
+    }
+
+    private static void assertMatches(TopoCoordData tcd, int byteOrder) throws Exception {
+        WKBWriter jts = new WKBWriter(2, byteOrder);
+        ThinnedWkbWriter writer = new ThinnedWkbWriter(byteOrder);
+        int rows = 0;
+        for (List<Row> tableRows: tcd.tableMap.values()) {
+            for (Row row: tableRows) {
+                MultiPolygon mp = tcd.createThinnedPolygon(row);
+                ByteBuffer wkb = writer.write(row);
+                assertEquals(0, wkb.position());
+                byte[] bytes = new byte[wkb.remaining()];
+                wkb.get(bytes);
+                assertArrayEquals(row.code, jts.write(mp), bytes);
+                assertEquals(mp.getNumPoints(), writer.getNumPoints());
+                rows++;
+            }
+        }
+        assertTrue(rows > 0);
+    }
+}
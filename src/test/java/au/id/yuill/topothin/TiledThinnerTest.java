@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tiled thinning saves every row once, keeps neighbouring rows fitting together across tile
+ * boundaries and drops the boundary edges once used.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TiledThinnerTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+    private final List<InMemoryTable> tables = TestData.tables(factory, 12);
+
+    @Test
+    public void singleTileMatchesFullRun() throws Exception {
+        TopoCoordData tcd = new TopoCoordData();
+        tcd.canonicalIslandNodes = true;
+        TestData.load(tcd, tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        assertEquals(TestData.geometry(tcd), run(new TiledThinner(new DefaultSimplifier(), 0, 1, 1)));
+    }
+
+    @Test
+    public void tilesFitTogether() throws Exception {
+        assertFit(new TiledThinner(new DefaultSimplifier(), 0, 4, 3));
+    }
+
+    /**
+     * Keeping every third vertex from the start of each line thins an edge differently in
+     * each direction, so rows fit together only if the other side reuses the edge.
+     */
+    @Test
+    public void boundaryEdgesReused() throws Exception {
+        assertFit(new TiledThinner(line -> {
+            Coordinate[] coords = line.getCoordinates();
+            List<Coordinate> kept = new ArrayList<>();
+            for (int i = 0; i < coords.length - 1; i += 3) {
+                kept.add(coords[i]);
+            }
+            kept.add(coords[coords.length - 1]);
+            if (kept.size() < 4 && line.isClosed()) {
+                return line;
+            }
+            return factory.createLineString(kept.toArray(new Coordinate[kept.size()]));
+        }, 0, 3, 4));
+    }
+
+    private void assertFit(TiledThinner thinner) throws Exception {
+        Map<String, Geometry> thinned = new TreeMap<>();
+        final int[] maxBoundaryEdges = {0};
+        thinner.run(new Source(), rows -> {
+            for (Row row: rows) {
+                assertNull(row.code, thinned.put(row.table + "/" + row.code, row.mp));
+            }
+            maxBoundaryEdges[0] = Math.max(maxBoundaryEdges[0], thinner.boundaryEdgeCount());
+        });
+        int count = 0;
+        for (InMemoryTable table: tables) {
+            count += table.getSourceRows().size();
+        }
+        assertEquals(count, thinned.size());
+        List<Geometry> fine = new ArrayList<>();
+        double area = 0.0;
+        for (Map.Entry<String, Geometry> entry: thinned.entrySet()) {
+            assertTrue(entry.getKey(), entry.getValue().isValid());
+            if (entry.getKey().startsWith("fine/")) {
+                fine.add(entry.getValue());
+                area += entry.getValue().getArea();
+            }
+        }
+        // no overlaps or gaps between the thinned cells
+        double union = factory.buildGeometry(fine).union().getArea();
+        assertEquals(area, union, area * 1e-9);
+        assertTrue(maxBoundaryEdges[0] > 0);
+        assertEquals(0, thinner.boundaryEdgeCount());
+    }
+
+    private Map<String, String> run(TiledThinner thinner) throws Exception {
+        Map<String, String> geometry = new TreeMap<>();
+        thinner.run(new Source(), rows -> {
+            for (Row row: rows) {
+                Geometry mp = row.mp.copy();
+                mp.normalize();
+                geometry.put(row.table + "/" + row.code, mp.toText());
+            }
+        });
+        return geometry;
+    }
+
+    /**
+     * The rows of the tables, copied for each query and given in reverse order by every
+     * second query, so that tiles do not find shared edges in the same direction.
+     */
+    private class Source implements TileSource {
+
+        private boolean reverse;
+
+        @Override
+        public Envelope getExtent() {
+            Envelope extent = new Envelope();
+            for (InMemoryTable table: tables) {
+                for (Row row: table.getSourceRows()) {
+                    extent.expandToInclude(row.mp.getEnvelopeInternal());
+                }
+            }
+            return extent;
+        }
+
+        @Override
+        public List<Row> getRows(Envelope query) {
+            List<Row> rows = new ArrayList<>();
+            for (InMemoryTable table: tables) {
+                for (Row source: table.getSourceRows()) {
+                    if (source.mp.getEnvelopeInternal().intersects(query)) {
+                        Row row = new Row();
+                        row.table = table;
+                        row.code = source.code;
+                        row.name = source.name;
+                        row.mp = source.mp;
+                        rows.add(row);
+                    }
+                }
+            }
+            if (reverse) {
+                Collections.reverse(rows);
+            }
+            reverse = !reverse;
+            return rows;
+        }
+    }
+}
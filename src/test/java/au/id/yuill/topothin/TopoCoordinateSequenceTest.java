@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sequences created by the TopoCoordData factory carry the vertex ids of the store that
+ * loaded them, which are used only by that store, kept by copies and not serialized.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoCoordinateSequenceTest {
+
+    private final GeometryFactory factory = new GeometryFactory(new PrecisionModel(),
+            0, TopoCoordinateSequenceFactory.instance());
+
+    @Test
+    public void vertexIdsOfLoadingStore() throws Exception {
+        List<InMemoryTable> tables = TestData.tables(factory, 4).subList(0, 3);
+        TopoCoordData tcd = TestData.load(tables);
+        TopoCoordData other = new TopoCoordData();
+        CoordIndex index = tcd.store.getIndex();
+        for (Row row: tcd.tableMap.get(tables.get(0))) {
+            Polygon poly = (Polygon)row.mp.getGeometryN(0);
+            CoordinateSequence seq = poly.getExteriorRing().getCoordinateSequence();
+            assertTrue(seq instanceof TopoCoordinateSequence);
+            TopoCoordinateSequence topoSeq = (TopoCoordinateSequence)seq;
+            int[] ids = topoSeq.getVertexIds(tcd.store);
+            assertNotNull(ids);
+            assertEquals(seq.size(), ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(index.get(seq.getY(i), seq.getX(i)), ids[i]);
+            }
+            assertNull(topoSeq.getVertexIds(other.store));
+            assertSame(ids, topoSeq.copy().getVertexIds(tcd.store));
+            assertSame(ids, ((TopoCoordinateSequence)factory.getCoordinateSequenceFactory().create(seq))
+                    .getVertexIds(tcd.store));
+        }
+    }
+
+    @Test
+    public void vertexIdsNotSerialized() throws Exception {
+        List<InMemoryTable> tables = TestData.tables(factory, 4).subList(0, 1);
+        TopoCoordData tcd = TestData.load(tables);
+        MultiPolygon mp = tcd.tableMap.get(tables.get(0)).get(0).mp;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mp);
+        }
+        MultiPolygon read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (MultiPolygon)in.readObject();
+        }
+        assertTrue(mp.equalsExact(read));
+        assertSame(TopoCoordinateSequenceFactory.instance(), read.getFactory().getCoordinateSequenceFactory());
+        LineString ring = ((Polygon)read.getGeometryN(0)).getExteriorRing();
+        assertNull(((TopoCoordinateSequence)ring.getCoordinateSequence()).getVertexIds(tcd.store));
+    }
+
+    /**
+     * Geometry shared by two topologies, loaded in different orders so that the same vertex
+     * has different ids in each, is thinned by both as it is when held by plain sequences.
+     */
+    @Test
+    public void sharedGeometryThinnedByEachStore() throws Exception {
+        Map<String, String> expected = thin(TestData.load(TestData.tables(new GeometryFactory(), 6).subList(0, 3)));
+        List<InMemoryTable> tables = TestData.tables(factory, 6).subList(0, 3);
+        TopoCoordData first = TestData.load(tables);
+        List<InMemoryTable> reversed = new ArrayList<>(tables);
+        Collections.reverse(reversed);
+        TopoCoordData second = TestData.load(reversed);
+        LineString ring = ((Polygon)tables.get(0).getSourceRows().get(0).mp.getGeometryN(0)).getExteriorRing();
+        TopoCoordinateSequence seq = (TopoCoordinateSequence)ring.getCoordinateSequence();
+        assertNull(seq.getVertexIds(first.store));
+        assertNotNull(seq.getVertexIds(second.store));
+        assertEquals(expected, thin(first));
+        assertEquals(expected, thin(second));
+        assertEquals(TestData.nodes(first), TestData.nodes(second));
+    }
+
+    private static Map<String, String> thin(TopoCoordData tcd) throws Exception {
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        assertTrue(tcd.createThinnedPolygons().isEmpty());
+        return TestData.geometry(tcd);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The TopoJSON written decodes, arcs quantised and delta encoded and reversed arcs given as
+ * ones complements, to the rings of the thinned polygons within the quantisation, and
+ * neighbouring rows refer to the same arcs.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoJsonWriterTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @Test
+    public void decodesToThinnedPolygons() throws Exception {
+        TopoCoordData tcd = topology();
+        Map<String, Object> topology = write(tcd, new TopoJsonWriter());
+        List<Object> scale = list(map(topology.get("transform")).get("scale"));
+        List<Object> translate = list(map(topology.get("transform")).get("translate"));
+        double sx = number(scale.get(0));
+        double sy = number(scale.get(1));
+        double tx = number(translate.get(0));
+        double ty = number(translate.get(1));
+        List<Object> arcs = list(topology.get("arcs"));
+        Map<String, Object> objects = map(topology.get("objects"));
+        assertEquals(tcd.tableMap.size(), objects.size());
+        int reversed = 0;
+        for (Table table: tcd.tableMap.keySet()) {
+            List<Object> geometries = list(map(objects.get(table.toString())).get("geometries"));
+            List<Row> rows = tcd.tableMap.get(table);
+            assertEquals(rows.size(), geometries.size());
+            for (int r = 0; r < rows.size(); r++) {
+                Row row = rows.get(r);
+                Map<String, Object> geometry = map(geometries.get(r));
+                assertEquals("MultiPolygon", geometry.get("type"));
+                assertEquals(row.code, map(geometry.get("properties")).get("code"));
+                MultiPolygon mp = tcd.createThinnedPolygon(row);
+                List<Object> polys = list(geometry.get("arcs"));
+                assertEquals(mp.getNumGeometries(), polys.size());
+                for (int p = 0; p < polys.size(); p++) {
+                    Polygon poly = (Polygon)mp.getGeometryN(p);
+                    List<Object> rings = list(polys.get(p));
+                    assertEquals(poly.getNumInteriorRing() + 1, rings.size());
+                    for (int i = 0; i < rings.size(); i++) {
+                        Coordinate[] expected = (i == 0 ? poly.getExteriorRing()
+                                : poly.getInteriorRingN(i - 1)).getCoordinates();
+                        List<double[]> decoded = new ArrayList<>();
+                        for (Object ref: list(rings.get(i))) {
+                            int arc = (int)number(ref);
+                            reversed += arc < 0 ? 1 : 0;
+                            List<double[]> positions = decode(list(arcs.get(arc < 0 ? ~arc : arc)), sx, sy, tx, ty);
+                            if (arc < 0) {
+                                Collections.reverse(positions);
+                            }
+                            // each arc after the first starts where the one before ends
+                            decoded.addAll(decoded.isEmpty() ? positions : positions.subList(1, positions.size()));
+                        }
+                        assertEquals(expected.length, decoded.size());
+                        for (int c = 0; c < expected.length; c++) {
+                            assertEquals(expected[c].x, decoded.get(c)[0], sx / 2 + 1e-12);
+                            assertEquals(expected[c].y, decoded.get(c)[1], sy / 2 + 1e-12);
+                        }
+                    }
+                }
+            }
+        }
+        // every edge between two rows is traversed backwards by one of them
+        assertTrue(reversed > 0);
+    }
+
+    /**
+     * At a coarse quantisation vertices on the same grid position as the one before are
+     * dropped, but every arc keeps two positions.
+     */
+    @Test
+    public void coarseQuantisation() throws Exception {
+        TopoCoordData tcd = topology();
+        Map<String, Object> topology = write(tcd, new TopoJsonWriter(3));
+        List<Object> arcs = list(topology.get("arcs"));
+        assertEquals(tcd.edgeMap.size(), arcs.size());
+        int vertices = 0;
+        for (Edge edge: tcd.edgeMap.values()) {
+            vertices += edge.getCoordArray().length;
+        }
+        int written = 0;
+        int padded = 0;
+        for (Object arc: arcs) {
+            List<Object> positions = list(arc);
+            assertTrue(positions.size() >= 2);
+            written += positions.size();
+            for (int i = 1; i < positions.size(); i++) {
+                List<Object> delta = list(positions.get(i));
+                if (number(delta.get(0)) == 0.0 && number(delta.get(1)) == 0.0) {
+                    assertEquals(2, positions.size());
+                    padded++;
+                }
+            }
+        }
+        assertTrue(padded > 0);
+        assertTrue(written < vertices);
+    }
+
+    @Test
+    public void stringsEscaped() throws Exception {
+        InMemoryTable table = new InMemoryTable("square");
+        table.add("a\"b\\c\nd\u00e9", null, factory.createMultiPolygon(new Polygon[] {factory.createPolygon(
+                new Coordinate[] {new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(1, 1), new Coordinate(0, 0)})}));
+        TopoCoordData tcd = TestData.load(Arrays.asList(table));
+        tcd.findNodes();
+        tcd.createEdges();
+        Map<Table, String> names = new HashMap<>();
+        names.put(table, "sq\"uare");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TopoJsonWriter().write(tcd, names, out);
+        String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse(json.contains("\n"));
+        Map<String, Object> row = map(list(map(map(parse(json).get("objects")).get("sq\"uare")).get("geometries")).get(0));
+        assertEquals("a\"b\\c\nd\u00e9", map(row.get("properties")).get("code"));
+        assertNull(map(row.get("properties")).get("name"));
+    }
+
+    private TopoCoordData topology() throws Exception {
+        TopoCoordData tcd = TestData.load(TestData.tables(factory, 6).subList(0, 3));
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        return tcd;
+    }
+
+    private static Map<String, Object> write(TopoCoordData tcd, TopoJsonWriter writer) throws Exception {
+        Map<Table, String> names = new HashMap<>();
+        for (Table table: tcd.tableMap.keySet()) {
+            names.put(table, table.toString());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(tcd, names, out);
+        Map<String, Object> topology = parse(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals("Topology", topology.get("type"));
+        return topology;
+    }
+
+    private static List<double[]> decode(List<Object> arc, double sx, double sy, double tx, double ty) {
+        List<double[]> positions = new ArrayList<>();
+        double x = 0;
+        double y = 0;
+        for (Object position: arc) {
+            x += number(list(position).get(0));
+            y += number(list(position).get(1));
+            positions.add(new double[] {x * sx + tx, y * sy + ty});
+        }
+        return positions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        return (Map<String, Object>)value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Object value) {
+        return (List<Object>)value;
+    }
+
+    private static double number(Object value) {
+        return (Double)value;
+    }
+
+    private static Map<String, Object> parse(String json) {
+        int[] pos = {0};
+        Map<String, Object> value = map(parseValue(json, pos));
+        assertEquals(json.length(), pos[0]);
+        return value;
+    }
+
+    /**
+     * Just enough of a JSON parser for the output of TopoJsonWriter, without whitespace.
+     */
+    private static Object parseValue(String json, int[] pos) {
+        char c = json.charAt(pos[0]);
+        if (c == '{') {
+            Map<String, Object> object = new LinkedHashMap<>();
+            pos[0]++;
+            while (json.charAt(pos[0]) != '}') {
+                String key = (String)parseValue(json, pos);
+                assertEquals(':', json.charAt(pos[0]++));
+                object.put(key, parseValue(json, pos));
+                if (json.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                }
+            }
+            pos[0]++;
+            return object;
+        } else if (c == '[') {
+            List<Object> array = new ArrayList<>();
+            pos[0]++;
+            while (json.charAt(pos[0]) != ']') {
+                array.add(parseValue(json, pos));
+                if (json.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                }
+            }
+            pos[0]++;
+            return array;
+        } else if (c == '"') {
+            StringBuilder sb = new StringBuilder();
+            for (pos[0]++; json.charAt(pos[0]) != '"'; pos[0]++) {
+                char s = json.charAt(pos[0]);
+                if (s == '\\') {
+                    s = json.charAt(++pos[0]);
+                    if (s == 'u') {
+                        s = (char)Integer.parseInt(json.substring(pos[0] + 1, pos[0] + 5), 16);
+                        pos[0] += 4;
+                    } else {
+                        assertTrue("Escaped " + s, s == '"' || s == '\\');
+                    }
+                }
+                sb.append(s);
+            }
+            pos[0]++;
+            return sb.toString();
+        } else if (json.startsWith("null", pos[0])) {
+            pos[0] += 4;
+            return null;
+        }
+        int start = pos[0];
+        while (pos[0] < json.length() && "-+.eE0123456789".indexOf(json.charAt(pos[0])) >= 0) {
+            pos[0]++;
+        }
+        return Double.parseDouble(json.substring(start, pos[0]));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Queries give the rows within an envelope thinned as thinEdges() thins them at the bucket
+ * tolerance, retry a row that collapses at finer buckets and then from its source edges,
+ * and report or throw the failures of rows that cannot be assembled.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoQueryTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @Test
+    public void queryMatchesThinEdges() throws Exception {
+        List<InMemoryTable> tables = TestData.tables(factory, 10).subList(0, 3);
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        TopoQuery query = new TopoQuery(tcd);
+        // the tolerance is rounded down to a bucket of a quarter doubling
+        double tolerance = 0.0005;
+        double bucketTolerance = Math.pow(2.0, Math.floor(Math.log(tolerance) / Math.log(2.0) * 4) / 4);
+        TopoCoordData thinned = TestData.load(tables);
+        thinned.findNodes();
+        thinned.createEdges();
+        thinned.thinEdges(bucketTolerance);
+        thinned.createThinnedPolygons();
+        Map<String, String> expected = TestData.geometry(thinned);
+
+        Envelope env = new Envelope(140.0, 140.03, -30.0, -29.97);
+        Map<Row, MultiPolygon> result = query.query(env, tolerance);
+        // rows are found by the polygons of their edges, which leave out islands of a row
+        Set<Row> inside = new HashSet<>();
+        for (List<Row> rows: tcd.tableMap.values()) {
+            for (Row row: rows) {
+                if (tcd.createPolygon(row, Edge::getSourceCoordArray).getEnvelopeInternal().intersects(env)) {
+                    inside.add(row);
+                }
+            }
+        }
+        assertFalse(inside.isEmpty());
+        assertEquals(inside, result.keySet());
+        for (Map.Entry<Row, MultiPolygon> entry: result.entrySet()) {
+            Geometry mp = entry.getValue().copy();
+            mp.normalize();
+            Row row = entry.getKey();
+            assertEquals(expected.get(row.table + "/" + row.code), mp.toText());
+        }
+        long misses = query.getMisses();
+        assertTrue(misses > 0);
+        query.query(env, tolerance * 1.01);
+        assertEquals(misses, query.getMisses());
+    }
+
+    /**
+     * A lens of two edges, each with vertices 0.0003 and 0.001 from its chord, collapses at
+     * coarse buckets: within two doublings it is assembled at the first bucket under 0.001,
+     * beyond them from its source edges.
+     */
+    @Test
+    public void collapsedRowRetried() throws Exception {
+        InMemoryTable table = lens();
+        TopoCoordData tcd = TestData.load(Arrays.asList(table));
+        tcd.findNodes();
+        tcd.createEdges();
+        TopoQuery query = new TopoQuery(tcd);
+        Row lens = tcd.tableMap.get(table).get(0);
+        assertEquals(5, query.thinned(lens, 0.0015).getNumPoints());
+        assertEquals(9, query.thinned(lens, 0.1).getNumPoints());
+        assertEquals(3, query.query(new Envelope(0.0, 2.0, -1.0, 1.0), 0.1).size());
+    }
+
+    @Test
+    public void collapsedSourceReported() throws Exception {
+        InMemoryTable table = lens();
+        TopoCoordData tcd = TestData.load(Arrays.asList(table));
+        tcd.findNodes();
+        tcd.createEdges();
+        List<Row> failed = new ArrayList<>();
+        tcd.addListener(new TopoListener() {
+            @Override
+            public void rowFailed(Row row, Exception e) {
+                assertTrue(e instanceof IllegalArgumentException);
+                failed.add(row);
+            }
+        });
+        TopoQuery query = new TopoQuery(tcd);
+        Row lens = tcd.tableMap.get(table).get(0);
+        // a ring running out and back along a single segment has three coordinates even at source
+        Edge segment = new Edge(null, null, new Coordinate[] {new Coordinate(0.0, 0.0), new Coordinate(2.0, 0.0)});
+        segment.setSignificance(VertexSignificance.douglasPeucker(segment.getSourceCoordArray()));
+        lens.topoPolyList.get(0).exterior = Arrays.asList(new RingEdge(segment, true), new RingEdge(segment, false));
+        Map<Row, MultiPolygon> result = query.query(new Envelope(0.0, 2.0, -1.0, 1.0), 0.1);
+        assertEquals(2, result.size());
+        assertFalse(result.containsKey(lens));
+        assertEquals(1, failed.size());
+        assertSame(lens, failed.get(0));
+    }
+
+    /**
+     * An edge sequence that does not join is not a collapse, and is not retried or hidden.
+     */
+    @Test
+    public void otherFailureThrown() throws Exception {
+        InMemoryTable table = lens();
+        TopoCoordData tcd = TestData.load(Arrays.asList(table));
+        tcd.findNodes();
+        tcd.createEdges();
+        TopoQuery query = new TopoQuery(tcd);
+        Row lens = tcd.tableMap.get(table).get(0);
+        RingEdge first = lens.topoPolyList.get(0).exterior.get(0);
+        first.forward = !first.forward;
+        try {
+            query.query(new Envelope(0.0, 2.0, -1.0, 1.0), 0.1);
+            fail("Broken edge sequence not thrown");
+        } catch (Exception e) {
+            assertFalse(e instanceof IllegalArgumentException);
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid edge sequence"));
+        }
+    }
+
+    /**
+     * The lens between two nodes and the squares above and below sharing its sides.
+     */
+    private InMemoryTable lens() {
+        Coordinate[] upper = {new Coordinate(0.0, 0.0), new Coordinate(0.5, 0.0008), new Coordinate(1.0, 0.001),
+                new Coordinate(1.5, 0.0008), new Coordinate(2.0, 0.0)};
+        Coordinate[] lower = {new Coordinate(2.0, 0.0), new Coordinate(1.5, -0.0008), new Coordinate(1.0, -0.001),
+                new Coordinate(0.5, -0.0008), new Coordinate(0.0, 0.0)};
+        List<Coordinate> ring = new ArrayList<>(Arrays.asList(upper));
+        ring.addAll(Arrays.asList(lower).subList(1, lower.length));
+        InMemoryTable table = new InMemoryTable("lens");
+        table.add("lens", "lens", multi(ring));
+        ring = new ArrayList<>(Arrays.asList(lower));
+        ring.addAll(Arrays.asList(new Coordinate(0.0, -1.0), new Coordinate(2.0, -1.0), new Coordinate(2.0, 0.0)));
+        table.add("below", "below", multi(ring));
+        ring = new ArrayList<>(Arrays.asList(upper));
+        ring.addAll(Arrays.asList(new Coordinate(2.0, 1.0), new Coordinate(0.0, 1.0), new Coordinate(0.0, 0.0)));
+        table.add("above", "above", multi(ring));
+        return table;
+    }
+
+    private MultiPolygon multi(List<Coordinate> ring) {
+        Polygon poly = factory.createPolygon(ring.toArray(new Coordinate[ring.size()]));
+        return factory.createMultiPolygon(new Polygon[] {poly});
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A topology read from a snapshot is thinned exactly as the topology written, keeping its
+ * precision model and layers, and rejects the calls that need the vertices it lacks.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopoSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<InMemoryTable> tables = TestData.tables(new GeometryFactory(), 10).subList(0, 3);
+
+    @Test
+    public void roundTrip() throws Exception {
+        assertRoundTrip(new TopoCoordData(new DefaultSimplifier(), 4283));
+    }
+
+    @Test
+    public void fixedPrecisionAndLayers() throws Exception {
+        TopoCoordData tcd = new TopoCoordData(new DefaultSimplifier(), 4283, new PrecisionModel(1e6));
+        tcd.setLayer(tables.get(1), 1);
+        TopoCoordData read = assertRoundTrip(tcd);
+        assertEquals(new PrecisionModel(1e6), read.factory.getPrecisionModel());
+        assertEquals(0, read.getLayer(tables.get(0)));
+        assertEquals(1, read.getLayer(tables.get(1)));
+    }
+
+    @Test
+    public void readTopologyHasNoVertices() throws Exception {
+        TopoCoordData tcd = TestData.load(tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        Path path = folder.getRoot().toPath().resolve("snapshot");
+        TopoSnapshot.write(tcd, new ArrayList<Table>(tables), path);
+        TopoCoordData read = TopoSnapshot.read(path, new ArrayList<Table>(tables), new DefaultSimplifier());
+        try {
+            read.findNodes();
+            fail("findNodes() on a snapshot");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            read.updateRows(Collections.emptyList(), Collections.emptyList());
+            fail("updateRows() on a snapshot");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * @return The topology read back
+     */
+    private TopoCoordData assertRoundTrip(TopoCoordData tcd) throws Exception {
+        TestData.load(tcd, tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        Path path = folder.getRoot().toPath().resolve("snapshot");
+        TopoSnapshot.write(tcd, new ArrayList<Table>(tables), path);
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        Map<String, String> expected = TestData.geometry(tcd);
+
+        TopoCoordData read = TopoSnapshot.read(path, new ArrayList<Table>(tables), new DefaultSimplifier());
+        assertEquals(tcd.edgeMap.size(), read.edgeMap.size());
+        assertEquals(4283, read.factory.getSRID());
+        read.simplifyEdges();
+        read.createThinnedPolygons();
+        assertEquals(expected, TestData.geometry(read));
+        return read;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.algorithm.LineIntersector;
+import org.locationtech.jts.algorithm.RobustLineIntersector;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * At a tolerance aggressive enough for edges simplified singly to cross, the edges
+ * simplified by TopologySafeSimplifier cross neither each other nor themselves and every
+ * thinned polygon is valid.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class TopologySafeSimplifierTest {
+
+    // the nudged table crosses the fine table before simplification
+    private final List<InMemoryTable> tables = TestData.tables(new GeometryFactory(), 10).subList(0, 3);
+
+    @Test
+    public void noCrossings() throws Exception {
+        TopoCoordData single = thin(new ArrayDouglasPeuckerSimplifier(0.5, 0.01));
+        TopoCoordData safe = thin(new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 0.01)));
+        assertTrue(crossings(single.edgeMap.values()) > 0);
+        assertEquals(0, crossings(safe.edgeMap.values()));
+        assertEquals(0, invalid(safe));
+    }
+
+    @Test
+    public void vertexCount() throws Exception {
+        TopoCoordData single = thin(new ArrayDouglasPeuckerSimplifier(0.5, 0.01));
+        TopoCoordData safe = thin(new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 0.01)));
+        int singleCount = 0;
+        int safeCount = 0;
+        for (Edge edge: single.edgeMap.values()) {
+            singleCount += edge.getCoordArray().length;
+            safeCount += safe.edgeMap.get(edge).getCoordArray().length;
+        }
+        // vertices are only put back, and fewer than there are in the source
+        assertTrue(safeCount >= singleCount);
+        assertTrue(safeCount < single.pointCount());
+    }
+
+    /**
+     * Edges are simplified from their source coordinates, so simplifying edges already thinned
+     * gives the same edges as simplifying them afresh.
+     */
+    @Test
+    public void simplifiedFromSource() throws Exception {
+        TopoCoordData fresh = thin(new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 0.01)));
+        TopoCoordData thinned = TestData.load(new TopoCoordData(
+                new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 0.01)), 0), tables);
+        thinned.findNodes();
+        thinned.createEdges();
+        thinned.thinEdges(0.02);
+        thin(thinned);
+        assertEquals(TestData.geometry(fresh), TestData.geometry(thinned));
+    }
+
+    /**
+     * A square with a deep notch in its top is added around a post standing in the notch
+     * and out of the top. Simplified alone, the square loses its notch and its top crosses
+     * the post, but simplified among the edges of the post it keeps the notch.
+     */
+    @Test
+    public void updatedRowsNoCrossings() throws Exception {
+        assertTrue(updatedCrossings(new ArrayDouglasPeuckerSimplifier(0.5, 10.0)) > 0);
+        assertEquals(0, updatedCrossings(new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 10.0))));
+    }
+
+    /**
+     * @return The number of crossings once the notched square is added to the thinned post
+     */
+    private static int updatedCrossings(Simplifier simplifier) throws Exception {
+        GeometryFactory factory = new GeometryFactory();
+        InMemoryTable post = new InMemoryTable("post");
+        post.add("post", null, factory.createMultiPolygon(new Polygon[] {factory.createPolygon(new Coordinate[] {
+                new Coordinate(4.95, 9), new Coordinate(5.05, 9), new Coordinate(5.05, 11),
+                new Coordinate(4.95, 11), new Coordinate(4.95, 9)})}));
+        TopoCoordData tcd = thin(TestData.load(new TopoCoordData(simplifier, 0), Arrays.asList(post)));
+        Row square = new Row();
+        square.table = new InMemoryTable("square");
+        square.code = "square";
+        square.mp = factory.createMultiPolygon(new Polygon[] {factory.createPolygon(new Coordinate[] {
+                new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(10, 10), new Coordinate(5.1, 10),
+                new Coordinate(5.1, 2), new Coordinate(4.9, 2), new Coordinate(4.9, 10), new Coordinate(0, 10),
+                new Coordinate(0, 0)})});
+        tcd.updateRows(Collections.<Row>emptyList(), Arrays.asList(square));
+        assertEquals(2, tcd.edgeMap.size());
+        return crossings(tcd.edgeMap.values());
+    }
+
+    /**
+     * Each coarse block, simplified in its own layer, is exactly the fine cells and islands
+     * it covers, and no simplified edge of either layer crosses another.
+     */
+    @Test
+    public void layersNest() throws Exception {
+        TopoCoordData tcd = new TopoCoordData(new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 0.01)), 0);
+        tcd.setLayer(tables.get(1), 1);
+        thin(TestData.load(tcd, tables));
+        assertNested(tcd);
+        assertEquals(0, crossings(tcd.edgeMap.values()));
+        assertEquals(0, invalid(tcd));
+    }
+
+    @Test
+    public void thinnedLayersNest() throws Exception {
+        TopoCoordData tcd = new TopoCoordData();
+        tcd.setLayer(tables.get(1), 1);
+        TestData.load(tcd, tables);
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.thinEdges(0.0002);
+        tcd.createThinnedPolygons();
+        assertNested(tcd);
+    }
+
+    private void assertNested(TopoCoordData tcd) {
+        List<Row> coarse = tcd.tableMap.get(tables.get(1));
+        assertTrue(coarse.size() > 1);
+        for (Row block: coarse) {
+            String[] ij = block.code.substring(1).split("_");
+            int i = Integer.parseInt(ij[0]);
+            int j = Integer.parseInt(ij[1]);
+            List<Geometry> parts = new ArrayList<>();
+            for (Table table: Arrays.asList(tables.get(0), tables.get(2))) {
+                for (Row row: tcd.tableMap.get(table)) {
+                    String[] ab = row.code.substring(1).split("_");
+                    int a = Integer.parseInt(ab[0]);
+                    int b = Integer.parseInt(ab[1]);
+                    if (a >= i && a < i + 2 && b >= j && b < j + 2) {
+                        parts.add(row.mp);
+                    }
+                }
+            }
+            Geometry union = block.mp.getFactory().buildGeometry(parts).union();
+            // the block is the first polygon, an island of its own may follow
+            Geometry difference = block.mp.getGeometryN(0).symDifference(union);
+            assertEquals(block.code, 0.0, difference.getArea(), 1e-15);
+        }
+    }
+
+    /**
+     * A coarse layer edge along finer edges is made of their simplified edges, rather than
+     * keeping most of its vertices.
+     */
+    @Test
+    public void edgeAlongFinerEdges() throws Exception {
+        GeometryFactory factory = new GeometryFactory();
+        Coordinate[] bottomA = zigzag(0, 0, 1, 0);
+        Coordinate[] bottomB = zigzag(1, 0, 2, 0);
+        Coordinate[] right = zigzag(2, 0, 2, 1);
+        Coordinate[] topB = zigzag(2, 1, 1, 1);
+        Coordinate[] topA = zigzag(1, 1, 0, 1);
+        Coordinate[] left = zigzag(0, 1, 0, 0);
+        Coordinate[] up = zigzag(1, 0, 1, 1);
+        Coordinate[] down = zigzag(1, 0, 1, 1);
+        Collections.reverse(Arrays.asList(down));
+        InMemoryTable fine = new InMemoryTable("fine");
+        fine.add("a", null, factory.createMultiPolygon(new Polygon[] {
+                factory.createPolygon(ring(bottomA, up, topA, left))}));
+        fine.add("b", null, factory.createMultiPolygon(new Polygon[] {
+                factory.createPolygon(ring(bottomB, right, topB, down))}));
+        InMemoryTable coarse = new InMemoryTable("coarse");
+        coarse.add("ab", null, factory.createMultiPolygon(new Polygon[] {
+                factory.createPolygon(ring(bottomA, bottomB, right, topB, topA, left))}));
+        TopoCoordData tcd = new TopoCoordData(new TopologySafeSimplifier(new ArrayDouglasPeuckerSimplifier(0.5, 0.1)), 0);
+        tcd.setLayer(coarse, 1);
+        thin(TestData.load(tcd, Arrays.asList(fine, coarse)));
+        Row ab = tcd.tableMap.get(coarse).get(0);
+        // 121 source vertices
+        assertTrue(ab.mp.getNumPoints() < 15);
+        assertEquals(0, crossings(edges(tcd, fine)));
+        assertEquals(0, crossings(edges(tcd, coarse)));
+        assertEquals(0, invalid(tcd));
+    }
+
+    /**
+     * @return 21 vertices from (x0, y0) to (x1, y1) alternately either side of the line
+     */
+    private static Coordinate[] zigzag(double x0, double y0, double x1, double y1) {
+        Coordinate[] coords = new Coordinate[21];
+        for (int s = 0; s <= 20; s++) {
+            double offset = s == 0 || s == 20 ? 0.0 : s % 2 == 0 ? 0.01 : -0.01;
+            coords[s] = new Coordinate(x0 + (x1 - x0) * s / 20 + (y1 - y0) * offset,
+                    y0 + (y1 - y0) * s / 20 - (x1 - x0) * offset);
+        }
+        return coords;
+    }
+
+    private static Coordinate[] ring(Coordinate[]... paths) {
+        List<Coordinate> coords = new ArrayList<>();
+        for (Coordinate[] path: paths) {
+            for (int i = coords.isEmpty() ? 0 : 1; i < path.length; i++) {
+                coords.add(path[i]);
+            }
+        }
+        return coords.toArray(new Coordinate[coords.size()]);
+    }
+
+    private TopoCoordData thin(Simplifier simplifier) throws Exception {
+        return thin(TestData.load(new TopoCoordData(simplifier, 0), tables));
+    }
+
+    private static TopoCoordData thin(TopoCoordData tcd) throws Exception {
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        return tcd;
+    }
+
+    /**
+     * @return The edges of the rows of the tables
+     */
+    private static Collection<Edge> edges(TopoCoordData tcd, Table... tables) {
+        Set<Edge> edges = Collections.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+        for (Table table: tables) {
+            for (Row row: tcd.tableMap.get(table)) {
+                for (TopoPoly poly: row.topoPolyList) {
+                    for (RingEdge ringEdge: poly.exterior) {
+                        edges.add(ringEdge.edge);
+                    }
+                    for (List<RingEdge> interior: poly.interiorList) {
+                        for (RingEdge ringEdge: interior) {
+                            edges.add(ringEdge.edge);
+                        }
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    private static int invalid(TopoCoordData tcd) {
+        int invalid = 0;
+        for (List<Row> rows: tcd.tableMap.values()) {
+            for (Row row: rows) {
+                if (!row.mp.isValid()) {
+                    invalid++;
+                }
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * @return The number of pairs of simplified segments that overlap or meet at a point
+     * interior to either, other than consecutive segments of an edge and equal segments
+     */
+    private static int crossings(Collection<Edge> edgeCollection) {
+        List<Coordinate[]> edges = new ArrayList<>();
+        STRtree tree = new STRtree();
+        for (Edge edge: edgeCollection) {
+            Coordinate[] c = edge.getCoordArray();
+            for (int i = 0; i < c.length - 1; i++) {
+                tree.insert(new Envelope(c[i], c[i + 1]), new int[] {edges.size(), i});
+            }
+            edges.add(c);
+        }
+        LineIntersector li = new RobustLineIntersector();
+        int crossings = 0;
+        for (int e = 0; e < edges.size(); e++) {
+            Coordinate[] c = edges.get(e);
+            for (int i = 0; i < c.length - 1; i++) {
+                for (Object item: tree.query(new Envelope(c[i], c[i + 1]))) {
+                    int[] other = (int[])item;
+                    Coordinate[] d = edges.get(other[0]);
+                    int j = other[1];
+                    if (other[0] < e || other[0] == e && j <= i) {
+                        continue;
+                    }
+                    if (other[0] == e && (j == i + 1 || i == 0 && j == c.length - 2 && c[0].equals2D(c[c.length - 1]))) {
+                        continue;
+                    }
+                    if (c[i].equals2D(d[j]) && c[i + 1].equals2D(d[j + 1])
+                            || c[i].equals2D(d[j + 1]) && c[i + 1].equals2D(d[j])) {
+                        // edges of different layers along each other
+                        continue;
+                    }
+                    li.computeIntersection(c[i], c[i + 1], d[j], d[j + 1]);
+                    if (li.hasIntersection() && (li.isInteriorIntersection()
+                            || li.getIntersectionNum() == LineIntersector.COLLINEAR_INTERSECTION
+                            && !li.getIntersection(0).equals2D(li.getIntersection(1)))) {
+                        crossings++;
+                    }
+                }
+            }
+        }
+        return crossings;
+    }
+}
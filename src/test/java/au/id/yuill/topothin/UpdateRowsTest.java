@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * updateRows() gives the same thinned geometry as rebuilding the topology from the rows
+ * that remain.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class UpdateRowsTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+    private final List<InMemoryTable> tables = TestData.tables(factory, 10);
+    private final Map<String, MultiPolygon> sources = new HashMap<>();
+
+    public UpdateRowsTest() {
+        for (InMemoryTable table: tables) {
+            for (Row row: table.getSourceRows()) {
+                sources.put(table + "/" + row.code, row.mp);
+            }
+        }
+    }
+
+    @Test
+    public void remove() throws Exception {
+        TopoCoordData tcd = build();
+        Set<Row> updated = tcd.updateRows(Arrays.asList(row(tcd, "f2_3"), row(tcd, "c4_4")),
+                Collections.<Row>emptyList());
+        assertFalse(updated.isEmpty());
+        assertEquals(TestData.geometry(rebuild(tcd)), TestData.geometry(tcd));
+    }
+
+    @Test
+    public void add() throws Exception {
+        TopoCoordData tcd = build();
+        Row square = newRow(tables.get(2), "square", factory.createPolygon(new Coordinate[] {
+                new Coordinate(140.005, -29.995), new Coordinate(140.035, -29.995),
+                new Coordinate(140.035, -29.965), new Coordinate(140.005, -29.965),
+                new Coordinate(140.005, -29.995)}));
+        Set<Row> updated = tcd.updateRows(Collections.<Row>emptyList(), Collections.singletonList(square));
+        assertTrue(updated.contains(square));
+        assertEquals(TestData.geometry(rebuild(tcd)), TestData.geometry(tcd));
+    }
+
+    @Test
+    public void replace() throws Exception {
+        TopoCoordData tcd = build();
+        Row old = row(tcd, "f5_6");
+        Polygon source = (Polygon)source(old).getGeometryN(0);
+        Coordinate[] coords = source.getExteriorRing().getCoordinates();
+        List<Coordinate> kept = new ArrayList<>();
+        for (int i = 0; i < coords.length; i++) {
+            // drop some vertices of every side
+            if (i % 5 != 3) {
+                kept.add(coords[i]);
+            }
+        }
+        Row replacement = newRow(old.table, old.code, factory.createPolygon(kept.toArray(new Coordinate[kept.size()])));
+        Set<Row> updated = tcd.updateRows(Collections.singletonList(old), Collections.singletonList(replacement));
+        assertTrue(updated.contains(replacement));
+        assertEquals(TestData.geometry(rebuild(tcd)), TestData.geometry(tcd));
+    }
+
+    private TopoCoordData build() throws Exception {
+        TopoCoordData tcd = TestData.load(new TopoCoordData(new DefaultSimplifier(), 0), tables);
+        thin(tcd);
+        return tcd;
+    }
+
+    private static void thin(TopoCoordData tcd) throws Exception {
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+    }
+
+    /**
+     * @return A topology built from the source geometry of the rows of the topology given
+     */
+    private TopoCoordData rebuild(TopoCoordData updated) throws Exception {
+        TopoCoordData tcd = new TopoCoordData(new DefaultSimplifier(), 0);
+        for (InMemoryTable table: tables) {
+            List<Row> rows = updated.tableMap.get(table);
+            if (rows != null) {
+                for (Row row: rows) {
+                    tcd.addRow(newRow(table, row.code, source(row)));
+                }
+            }
+        }
+        thin(tcd);
+        return tcd;
+    }
+
+    private MultiPolygon source(Row row) {
+        return sources.get(row.table + "/" + row.code);
+    }
+
+    private Row newRow(Table table, String code, Polygon poly) {
+        MultiPolygon mp = factory.createMultiPolygon(new Polygon[] {poly});
+        sources.put(table + "/" + code, mp);
+        return newRow(table, code, mp);
+    }
+
+    private static Row newRow(Table table, String code, MultiPolygon mp) {
+        Row row = new Row();
+        row.table = table;
+        row.code = code;
+        row.mp = mp;
+        return row;
+    }
+
+    private static Row row(TopoCoordData tcd, String code) {
+        for (List<Row> rows: tcd.tableMap.values()) {
+            for (Row row: rows) {
+                if (row.code.equals(code)) {
+                    return row;
+                }
+            }
+        }
+        throw new IllegalArgumentException(code);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package au.id.yuill.topothin;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Rows written by WkbFileWriter are loaded unchanged by WkbFileTable, the load, thin and save
+ * cycle through WKB record files matches thinning in memory, and corrupt records are
+ * reported as IOExceptions.
+ *
+ * @version 1.0
+ * @author agent
+ */
+public class WkbFileTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GeometryFactory factory = new GeometryFactory();
+    private final List<InMemoryTable> tables = TestData.tables(factory, 8).subList(0, 3);
+
+    @Test
+    public void rowsRoundTrip() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("rows.wkb");
+        Polygon square = factory.createPolygon(new Coordinate[] {new Coordinate(0, 0), new Coordinate(1, 0),
+                new Coordinate(1, 1), new Coordinate(0, 0)});
+        List<Row> source = tables.get(0).getSourceRows();
+        try (WkbFileWriter out = new WkbFileWriter(path)) {
+            for (Row row: source) {
+                out.write(row);
+            }
+            out.write("\u00dcn\u00efcode", null, ByteBuffer.wrap(new WKBWriter().write(square)));
+            out.write(null, "no code", ByteBuffer.wrap(new WKBWriter().write(square)));
+            assertEquals(source.size() + 2, out.getCount());
+        }
+        WkbFileTable table = new WkbFileTable("rows", path, null);
+        TopoCoordData tcd = new TopoCoordData();
+        table.populateTopoCoordData(null, null, tcd);
+        List<Row> rows = tcd.tableMap.get(table);
+        assertEquals(source.size() + 2, rows.size());
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(source.get(i).code, rows.get(i).code);
+            assertNull(rows.get(i).name);
+            assertTrue(source.get(i).mp.equalsExact(rows.get(i).mp));
+        }
+        Row unicode = rows.get(source.size());
+        assertEquals("\u00dcn\u00efcode", unicode.code);
+        assertNull(unicode.name);
+        assertTrue(unicode.mp instanceof MultiPolygon);
+        assertTrue(square.equalsExact(unicode.mp.getGeometryN(0)));
+        Row noCode = rows.get(source.size() + 1);
+        assertNull(noCode.code);
+        assertEquals("no code", noCode.name);
+    }
+
+    @Test
+    public void thinnedMatchesInMemory() throws Exception {
+        TopoCoordData memory = TestData.load(tables);
+        memory.findNodes();
+        memory.createEdges();
+        memory.simplifyEdges();
+        memory.createThinnedPolygons();
+        Map<String, String> expected = TestData.geometry(memory);
+
+        List<WkbFileTable> files = new ArrayList<>();
+        for (InMemoryTable source: tables) {
+            Path path = folder.getRoot().toPath().resolve(source + ".wkb");
+            try (WkbFileWriter out = new WkbFileWriter(path)) {
+                for (Row row: source.getSourceRows()) {
+                    out.write(row);
+                }
+            }
+            files.add(new WkbFileTable(source.toString(), path, folder.getRoot().toPath().resolve(source + ".thin")));
+        }
+        TopoCoordData tcd = new TopoCoordData();
+        for (WkbFileTable file: files) {
+            file.populateTopoCoordData(null, null, tcd);
+        }
+        tcd.findNodes();
+        tcd.createEdges();
+        tcd.simplifyEdges();
+        tcd.createThinnedPolygons();
+        for (WkbFileTable file: files) {
+            file.saveThinnedGeometry(null, null, tcd);
+        }
+
+        // the thinned files, read back
+        Map<String, String> actual = new TreeMap<>();
+        TopoCoordData thinned = new TopoCoordData();
+        for (WkbFileTable file: files) {
+            WkbFileTable table = new WkbFileTable(file.toString(), file.getThinned(), null);
+            table.populateTopoCoordData(null, null, thinned);
+            for (Row row: thinned.tableMap.get(table)) {
+                MultiPolygon mp = (MultiPolygon)row.mp.copy();
+                mp.normalize();
+                actual.put(table + "/" + row.code, mp.toText());
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void corruptRecordsRejected() throws Exception {
+        byte[] code = "code".getBytes(StandardCharsets.UTF_8);
+        // a string longer than its record
+        assertCorrupt(record(4 + 4 + 4 + 4, 100));
+        // a negative length other than -1, which marks null
+        assertCorrupt(record(4 + 4 + 4, -5));
+        // a record too short for the length of its name
+        assertCorrupt(record(4 + code.length, code.length, code));
+        // wkb longer than its record
+        ByteBuffer wkb = ByteBuffer.allocate(4 + 4 + 4 + 4);
+        wkb.putInt(-1).putInt(-1).putInt(1000).putInt(0);
+        assertCorrupt(record(wkb.array()));
+    }
+
+    private void assertCorrupt(ByteBuffer file) throws Exception {
+        Path path = folder.getRoot().toPath().resolve("corrupt.wkb");
+        Files.write(path, Arrays.copyOf(file.array(), file.position()));
+        try {
+            new WkbFileTable("corrupt", path, null).populateTopoCoordData(null, null, new TopoCoordData());
+            fail("Corrupt record loaded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt record at " + WkbFileWriter.HEADER_SIZE));
+        }
+    }
+
+    /**
+     * @return A file of one record of the given length whose body starts with the string
+     * length and bytes given
+     */
+    private static ByteBuffer record(int length, int stringLength, byte... bytes) {
+        ByteBuffer file = header(length);
+        file.putInt(length);
+        file.putInt(stringLength);
+        file.put(bytes);
+        file.position(WkbFileWriter.HEADER_SIZE + 4 + length);
+        return file;
+    }
+
+    private static ByteBuffer record(byte[] body) {
+        ByteBuffer file = header(body.length);
+        file.putInt(body.length);
+        file.put(body);
+        return file;
+    }
+
+    private static ByteBuffer header(int length) {
+        ByteBuffer file = ByteBuffer.allocate(WkbFileWriter.HEADER_SIZE + 4 + length);
+        file.putLong(WkbFileWriter.MAGIC);
+        file.putInt(WkbFileWriter.VERSION);
+        return file;
+    }
+}